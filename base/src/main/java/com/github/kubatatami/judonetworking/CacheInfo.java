@@ -13,6 +13,8 @@ public class CacheInfo implements Serializable {
 
     public Long dataTime;
 
+    public boolean isStale;
+
     public CacheInfo() {
     }
 
@@ -20,4 +22,10 @@ public class CacheInfo implements Serializable {
         this.isCached = isCached;
         this.dataTime = dataTime;
     }
+
+    public CacheInfo(boolean isCached, Long dataTime, boolean isStale) {
+        this.isCached = isCached;
+        this.dataTime = dataTime;
+        this.isStale = isStale;
+    }
 }
@@ -8,9 +8,11 @@ import com.github.kubatatami.judonetworking.caches.DiskCache;
 import com.github.kubatatami.judonetworking.caches.MemoryCache;
 import com.github.kubatatami.judonetworking.clonners.Clonner;
 import com.github.kubatatami.judonetworking.internals.EndpointBase;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStat;
 import com.github.kubatatami.judonetworking.internals.stats.MethodStat;
 
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Created with IntelliJ IDEA.
@@ -98,6 +100,35 @@ public interface Endpoint extends EndpointBase {
      */
     void setBatchTimeoutMode(BatchTimeoutMode mode);
 
+    int getBatchConcurrency();
+
+    /**
+     * Sets how many batch requests may run at the same time when protocol controller doesn't support batches.
+     *
+     * @param batchConcurrency
+     */
+    void setBatchConcurrency(int batchConcurrency);
+
+    int getBatchSplitParts();
+
+    /**
+     * Splits every batch into given number of HTTP batches sent at the same time.
+     * Requests are assigned to parts by their weight (see {@link #setTimeProfilerEnabled(boolean)}).
+     *
+     * @param parts Number of parts, 1 disables splitting
+     */
+    void setBatchSplitParts(int parts);
+
+    int getAutoBatchMaxSize();
+
+    /**
+     * Auto batch window is sent before auto batch time elapses when it collects given number of requests.
+     * Window is shared by all services created by this endpoint.
+     *
+     * @param autoBatchMaxSize Max requests in auto batch, 0 means no limit
+     */
+    void setAutoBatchMaxSize(int autoBatchMaxSize);
+
     /**
      * Enables response cache.
      *
@@ -156,6 +187,30 @@ public interface Endpoint extends EndpointBase {
 
     void clearCache();
 
+    /**
+     * Removes memory and disk cache entries of calls with argument annotated by
+     * {@link com.github.kubatatami.judonetworking.annotations.CacheTag} with given name and value.
+     */
+    void clearCacheByTag(String name, Object value);
+
+    /**
+     * Removes memory and disk cache entries with any tag starting with given prefix,
+     * e.g. {@code "user:"} removes entries tagged by all users.
+     */
+    void clearCacheByTagPrefix(String prefix);
+
+    /**
+     * Loads disk cache entries of api interface into memory cache on low priority background thread,
+     * so first calls after start don't pay for disk read and deserialization. Methods called most often
+     * according to time profiler stats are loaded first. Raw body entries and entries with arguments
+     * which aren't serializable are skipped.
+     *
+     * @param apiInterface Interface used to create service
+     * @param maxBytes     Max sum of disk entry sizes to load
+     * @return Future which can be used to cancel warm-up
+     */
+    Future<?> warmUpCache(Class<?> apiInterface, long maxBytes);
+
     void setUrl(String url);
 
     String getUrl();
@@ -178,6 +233,17 @@ public interface Endpoint extends EndpointBase {
 
     Map<String, MethodStat> getTimeProfilerStats();
 
+    /**
+     * @return Snapshot of cache hits, misses, expirations, evictions, load time and bytes read,
+     * keyed by method name and cache level ({@link LocalCache.CacheLevel#MEMORY_ONLY} for memory cache)
+     */
+    Map<String, CacheStat> getCacheStats();
+
+    /**
+     * Clears cache statistics.
+     */
+    void clearCacheStats();
+
     /**
      * Created with IntelliJ IDEA.
      * User: jbogacki
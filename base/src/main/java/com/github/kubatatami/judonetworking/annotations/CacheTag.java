@@ -0,0 +1,23 @@
+package com.github.kubatatami.judonetworking.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tags cached result with value of annotated argument as {@code name:value}, e.g. {@code user:42}.
+ * All memory and disk cache entries with given tag can be removed by
+ * {@link com.github.kubatatami.judonetworking.Endpoint#clearCacheByTag(String, Object)}
+ * or by tag prefix with {@link com.github.kubatatami.judonetworking.Endpoint#clearCacheByTagPrefix(String)}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface CacheTag {
+
+    /**
+     * Tag name
+     */
+    String value();
+
+}
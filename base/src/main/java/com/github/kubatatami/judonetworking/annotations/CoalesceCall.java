@@ -0,0 +1,18 @@
+package com.github.kubatatami.judonetworking.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Calls of annotated method with equal arguments started while another one is in progress
+ * don't go to the network. They receive result or error of the request which is already in progress.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface CoalesceCall {
+
+    boolean enabled() default true;
+
+}
@@ -26,6 +26,27 @@ public @interface LocalCache {
 
     OnlyOnError onlyOnError() default OnlyOnError.DEFAULT;
 
+    /**
+     * Stores raw response body on disk instead of deserialized object and parses it again on cache hit.
+     * Works with disk cache levels of single requests, batched requests are cached in memory only.
+     */
+    boolean rawBody() default false;
+
+    /**
+     * Revalidates expired entry with If-None-Match/If-Modified-Since built from cached response headers.
+     * When server answers 304 the cached object is returned and its life time starts again.
+     * Works with single requests only.
+     */
+    boolean revalidate() default false;
+
+    /**
+     * Returns expired entry immediately (marked by {@link com.github.kubatatami.judonetworking.CacheInfo#isStale})
+     * and refreshes it in background. Changed value is delivered to
+     * {@link com.github.kubatatami.judonetworking.callbacks.RefreshCallback}, value is unchanged when response
+     * has the same ETag or Last-Modified as cached one. Works with single requests only.
+     */
+    boolean staleWhileRevalidate() default false;
+
 
     int DEFAULT = -1;
 
@@ -0,0 +1,18 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Encodes cached objects stored by {@link DiskCache}.
+ * Implementations must not close given streams.
+ */
+public interface CacheCodec {
+
+    void write(OutputStream outputStream, Object object, Type type) throws IOException;
+
+    Object read(InputStream inputStream, Type type) throws IOException;
+
+}
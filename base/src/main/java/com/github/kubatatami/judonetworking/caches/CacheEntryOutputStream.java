@@ -0,0 +1,74 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stream writing disk cache entry to temporary file. Entry becomes visible in cache
+ * only after {@link #commit()}, {@link #close()} without commit discards it.
+ */
+public abstract class CacheEntryOutputStream extends OutputStream {
+
+    protected final File file;
+
+    private final OutputStream stream;
+
+    private boolean finished;
+
+    public CacheEntryOutputStream(File file) throws IOException {
+        this.file = file;
+        this.stream = new BufferedOutputStream(new FileOutputStream(file));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        stream.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        stream.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        stream.flush();
+    }
+
+    public void commit() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            stream.close();
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        onCommit(file);
+    }
+
+    public void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+        }
+        file.delete();
+    }
+
+    @Override
+    public void close() {
+        abort();
+    }
+
+    protected abstract void onCommit(File file) throws IOException;
+
+}
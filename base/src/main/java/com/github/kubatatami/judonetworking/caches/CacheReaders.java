@@ -0,0 +1,89 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import android.os.Process;
+
+import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.logs.JudoLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small shared pool which reads and deserializes disk cache entries of bulk lookups in parallel.
+ */
+final class CacheReaders {
+
+    private static final int THREAD_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    // callers wait for reads, so they shouldn't inherit priority of background thread which started the pool
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+                    runnable.run();
+                }
+            }, "JudoNetworking DiskCacheReader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private CacheReaders() {
+    }
+
+    /**
+     * Runs reads in parallel, the last one on calling thread. Failed or interrupted reads give empty results.
+     *
+     * @return Results in order of reads
+     */
+    static List<CacheResult> readAll(List<Callable<CacheResult>> reads) {
+        List<CacheResult> results = new ArrayList<>(reads.size());
+        if (reads.isEmpty()) {
+            return results;
+        }
+        List<Future<CacheResult>> futures = new ArrayList<>(reads.size() - 1);
+        for (int i = 0; i < reads.size() - 1; i++) {
+            futures.add(executor.submit(reads.get(i)));
+        }
+        CacheResult last = call(reads.get(reads.size() - 1));
+        for (Future<CacheResult> future : futures) {
+            CacheResult result = null;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+            } catch (ExecutionException e) {
+                JudoLogger.log(e);
+            }
+            results.add(result != null ? result : new CacheResult());
+        }
+        results.add(last);
+        return results;
+    }
+
+    private static CacheResult call(Callable<CacheResult> read) {
+        try {
+            CacheResult result = read.call();
+            return result != null ? result : new CacheResult();
+        } catch (Exception e) {
+            JudoLogger.log(e);
+            return new CacheResult();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import android.content.Context;
+
+import com.github.kubatatami.judonetworking.Endpoint;
+import com.github.kubatatami.judonetworking.annotations.LocalCache;
+import com.github.kubatatami.judonetworking.internals.cache.CacheKey;
+import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.TagIndex;
+import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStats;
+import com.github.kubatatami.judonetworking.logs.JudoLogger;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory cache keyed by method id and deeply compared arguments. Every method has its own
+ * independently locked LRU limited exactly to cache size, so lookups of different methods don't block
+ * each other. Entries are weighed and all methods share one byte budget, least recently used entries
+ * are evicted when it's exceeded or when system asks to trim memory (see {@link MemoryTrimCallbacks}).
+ */
+public class ConcurrentMemoryCache implements MemoryCache {
+
+    protected final ConcurrentHashMap<Integer, MethodCache> cache = new ConcurrentHashMap<>();
+
+    protected final AtomicLong sizeInBytes = new AtomicLong();
+
+    protected final AtomicLong accessClock = new AtomicLong();
+
+    protected final Object evictionLock = new Object();
+
+    protected final TagIndex<CacheKey> tagIndex = new TagIndex<>();
+
+    protected Context context;
+
+    protected Weigher weigher = new ObjectSizeWeigher();
+
+    protected volatile long maxBytes = Runtime.getRuntime().maxMemory() / 8;
+
+    protected CacheStats cacheStats;
+
+    private int debugFlags;
+
+    public ConcurrentMemoryCache(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public CacheResult get(int methodId, Object params[], int cacheLifeTime, int cacheSize) {
+        CacheResult result = new CacheResult();
+        MethodCache methodCache = cache.get(methodId);
+        if (methodCache != null) {
+            CacheKey key = new CacheKey(methodId, params);
+            if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+                JudoLogger.log("Search for " + key, JudoLogger.LogLevel.DEBUG);
+            }
+            CacheEntry cacheEntry = methodCache.getEntry(key);
+            if (cacheEntry != null) {
+                if (cacheLifeTime == 0 || System.currentTimeMillis() - cacheEntry.createTime < cacheLifeTime) {
+                    if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+                        JudoLogger.log("Cache(" + methodId + "): Get from memory cache object " + key, JudoLogger.LogLevel.DEBUG);
+                    }
+                    result.object = cacheEntry.object;
+                    result.time = cacheEntry.createTime;
+                    result.headers = cacheEntry.headers;
+                    result.result = true;
+                } else {
+                    result.expired = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(int methodId, Object params[], Object object, int cacheSize, Map<String, List<String>> headers, String[] tags) {
+        put(methodId, params, object, cacheSize, headers, tags, System.currentTimeMillis());
+    }
+
+    @Override
+    public void put(int methodId, Object params[], Object object, int cacheSize, Map<String, List<String>> headers, String[] tags, long createTime) {
+        CacheKey key = new CacheKey(methodId, params);
+        int weight = weigher.weigh(object);
+        if (weight > maxBytes) {
+            if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+                JudoLogger.log("Cache(" + methodId + "): Object too big for memory cache " + key + " (" + weight + "B)", JudoLogger.LogLevel.DEBUG);
+            }
+            clearCache(methodId, params);
+            return;
+        }
+        CacheEntry entry = new CacheEntry(createTime, object, headers, weight, accessClock.incrementAndGet());
+        getMethodCache(methodId, cacheSize).putEntry(key, entry);
+        if (tags != null && tags.length > 0) {
+            tagIndex.put(key, tags);
+        } else {
+            tagIndex.remove(key);
+        }
+        if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+            JudoLogger.log("Cache(" + methodId + "): Saved in memory cache " + key + " (" + weight + "B)", JudoLogger.LogLevel.DEBUG);
+        }
+        trimToSize(maxBytes);
+    }
+
+    protected MethodCache getMethodCache(int methodId, int cacheSize) {
+        MethodCache methodCache = cache.get(methodId);
+        if (methodCache == null) {
+            MethodCache newMethodCache = new MethodCache(methodId, cacheSize);
+            methodCache = cache.putIfAbsent(methodId, newMethodCache);
+            if (methodCache == null) {
+                methodCache = newMethodCache;
+            }
+        }
+        return methodCache;
+    }
+
+    /**
+     * Evicts least recently used entries of all methods until cache takes at most given number of bytes.
+     * Methods are ordered once by access time of their eldest entries, so every eviction costs
+     * O(log methods) instead of a scan of all methods.
+     */
+    public void trimToSize(long bytes) {
+        if (sizeInBytes.get() <= bytes) {
+            return;
+        }
+        synchronized (evictionLock) {
+            PriorityQueue<EvictionCandidate> candidates = new PriorityQueue<>();
+            for (MethodCache methodCache : cache.values()) {
+                long access = methodCache.getEldestAccess();
+                if (access != Long.MAX_VALUE) {
+                    candidates.add(new EvictionCandidate(methodCache, access));
+                }
+            }
+            while (sizeInBytes.get() > bytes && !candidates.isEmpty()) {
+                EvictionCandidate candidate = candidates.poll();
+                if (candidate.methodCache.removeEldest()) {
+                    candidate.access = candidate.methodCache.getEldestAccess();
+                    if (candidate.access != Long.MAX_VALUE) {
+                        candidates.add(candidate);
+                    }
+                }
+            }
+        }
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @param maxBytes Memory budget shared by all methods
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public void setWeigher(Weigher weigher) {
+        this.weigher = weigher;
+    }
+
+    @Override
+    public void clearCache() {
+        for (Integer methodId : cache.keySet()) {
+            clearCache(methodId);
+        }
+    }
+
+    @Override
+    public void clearCache(Method method) {
+        clearCache(CacheMethod.getMethodId(method));
+    }
+
+    @Override
+    public void clearCache(Method method, Object... params) {
+        clearCache(CacheMethod.getMethodId(method), params);
+    }
+
+    /**
+     * Entries are cleared in place, method cache stays registered so puts racing with clear still land in cache
+     * visited by eviction.
+     */
+    @Override
+    public void clearCache(int methodId) {
+        MethodCache methodCache = cache.get(methodId);
+        if (methodCache != null) {
+            methodCache.clearEntries();
+        }
+    }
+
+    @Override
+    public void clearCache(int methodId, Object... params) {
+        MethodCache methodCache = cache.get(methodId);
+        if (methodCache != null) {
+            methodCache.removeEntry(new CacheKey(methodId, params));
+        }
+    }
+
+    @Override
+    public void clearCacheByTag(String tag) {
+        removeKeys(tagIndex.removeTag(tag));
+    }
+
+    @Override
+    public void clearCacheByTagPrefix(String prefix) {
+        removeKeys(tagIndex.removeTagPrefix(prefix));
+    }
+
+    protected void removeKeys(Set<CacheKey> keys) {
+        for (CacheKey key : keys) {
+            MethodCache methodCache = cache.get(key.getMethodId());
+            if (methodCache != null) {
+                methodCache.removeEntry(key);
+            }
+        }
+    }
+
+    protected void onEviction(int methodId) {
+        CacheStats stats = cacheStats;
+        if (stats != null) {
+            stats.recordEviction(methodId, LocalCache.CacheLevel.MEMORY_ONLY);
+        }
+    }
+
+    @Override
+    public void setCacheStats(CacheStats cacheStats) {
+        this.cacheStats = cacheStats;
+    }
+
+    @Override
+    public int getDebugFlags() {
+        return debugFlags;
+    }
+
+    @Override
+    public void setDebugFlags(int debugFlags) {
+        this.debugFlags = debugFlags;
+    }
+
+    protected static class CacheEntry {
+
+        final long createTime;
+
+        final Object object;
+
+        final Map<String, List<String>> headers;
+
+        final int weight;
+
+        long lastAccess;
+
+        CacheEntry(long createTime, Object object, Map<String, List<String>> headers, int weight, long lastAccess) {
+            this.createTime = createTime;
+            this.object = object;
+            this.headers = headers;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    protected static class EvictionCandidate implements Comparable<EvictionCandidate> {
+
+        final MethodCache methodCache;
+
+        long access;
+
+        EvictionCandidate(MethodCache methodCache, long access) {
+            this.methodCache = methodCache;
+            this.access = access;
+        }
+
+        @Override
+        public int compareTo(EvictionCandidate other) {
+            return access < other.access ? -1 : (access == other.access ? 0 : 1);
+        }
+    }
+
+    protected class MethodCache extends LinkedHashMap<CacheKey, CacheEntry> {
+
+        private final int methodId;
+
+        private final int maxSize;
+
+        MethodCache(int methodId, int cacheSize) {
+            super(16, 0.75f, true);
+            this.methodId = methodId;
+            this.maxSize = cacheSize > 0 ? cacheSize : Integer.MAX_VALUE;
+        }
+
+        synchronized CacheEntry getEntry(CacheKey key) {
+            CacheEntry entry = get(key);
+            if (entry != null) {
+                entry.lastAccess = accessClock.incrementAndGet();
+            }
+            return entry;
+        }
+
+        synchronized void putEntry(CacheKey key, CacheEntry entry) {
+            sizeInBytes.addAndGet(entry.weight);
+            CacheEntry old = put(key, entry);
+            if (old != null) {
+                sizeInBytes.addAndGet(-old.weight);
+            }
+        }
+
+        void removeEntry(CacheKey key) {
+            synchronized (this) {
+                CacheEntry old = remove(key);
+                if (old != null) {
+                    sizeInBytes.addAndGet(-old.weight);
+                }
+            }
+            tagIndex.remove(key);
+        }
+
+        synchronized void clearEntries() {
+            for (Map.Entry<CacheKey, CacheEntry> entry : entrySet()) {
+                sizeInBytes.addAndGet(-entry.getValue().weight);
+                tagIndex.remove(entry.getKey());
+            }
+            clear();
+        }
+
+        /**
+         * @return Access time of least recently used entry or {@link Long#MAX_VALUE} when empty
+         */
+        synchronized long getEldestAccess() {
+            Iterator<CacheEntry> iterator = values().iterator();
+            return iterator.hasNext() ? iterator.next().lastAccess : Long.MAX_VALUE;
+        }
+
+        synchronized boolean removeEldest() {
+            Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entrySet().iterator();
+            if (iterator.hasNext()) {
+                Map.Entry<CacheKey, CacheEntry> eldest = iterator.next();
+                sizeInBytes.addAndGet(-eldest.getValue().weight);
+                iterator.remove();
+                tagIndex.remove(eldest.getKey());
+                onEviction(methodId);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+            if (size() > maxSize) {
+                sizeInBytes.addAndGet(-eldest.getValue().weight);
+                tagIndex.remove(eldest.getKey());
+                onEviction(methodId);
+                return true;
+            }
+            return false;
+        }
+    }
+}
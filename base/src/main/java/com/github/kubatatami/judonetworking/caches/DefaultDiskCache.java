@@ -4,24 +4,27 @@ import android.content.Context;
 
 import com.github.kubatatami.judonetworking.Endpoint;
 import com.github.kubatatami.judonetworking.annotations.LocalCache;
+import com.github.kubatatami.judonetworking.internals.cache.CacheEntryFormat;
 import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheKey;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheLookup;
+import com.github.kubatatami.judonetworking.internals.cache.TagIndex;
 import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStats;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Created with IntelliJ IDEA.
@@ -33,6 +36,12 @@ public class DefaultDiskCache implements DiskCache {
 
     private int debugFlags;
 
+    private CacheStats cacheStats;
+
+    private CacheCodec cacheCodec = new SerializableCacheCodec();
+
+    private volatile TagIndex<File> tagIndex;
+
     protected Context context;
 
     public DefaultDiskCache(Context context) {
@@ -41,41 +50,197 @@ public class DefaultDiskCache implements DiskCache {
 
 
     @Override
-    public CacheResult get(CacheMethod method, String hash, int cacheLifeTime) {
-        return loadObject(method, hash, cacheLifeTime);
+    public CacheResult get(CacheMethod method, DiskCacheKey key, int cacheLifeTime) {
+        return loadObject(method, key, cacheLifeTime);
+    }
+
+    /**
+     * Entries are located by file name, so lookups are just read in parallel.
+     */
+    @Override
+    public List<CacheResult> getAll(List<DiskCacheLookup> lookups) {
+        List<Callable<CacheResult>> reads = new ArrayList<>(lookups.size());
+        for (final DiskCacheLookup lookup : lookups) {
+            reads.add(new Callable<CacheResult>() {
+                @Override
+                public CacheResult call() throws Exception {
+                    return loadObject(lookup.getMethod(), lookup.getKey(), lookup.getCacheLifeTime());
+                }
+            });
+        }
+        return CacheReaders.readAll(reads);
     }
 
     @Override
-    public void put(CacheMethod method, String hash, Object object, int cacheSize, Map<String, List<String>> headers) {
+    public void put(CacheMethod method, DiskCacheKey key, Object object, int cacheSize, Map<String, List<String>> headers) {
+        CacheEntryOutputStream os = openEntry(method, key, cacheSize);
+        if (os == null) {
+            return;
+        }
         try {
-            File dir = getCacheDir(method);
-            File file = new File(getCacheDir(method), hash + "");
-            if (cacheSize > 0) {
-                trimToSize(dir, cacheSize);
-            }
-            ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
-            os.writeObject(new CacheResult(object, true, method.getTime(), headers));
-            os.flush();
+            CacheEntryFormat.write(os, key, new CacheResult(object, true, method.getTime(), headers), method.getReturnType(), cacheCodec);
+            os.commit();
+        } catch (IOException e) {
+            JudoLogger.log(e);
+        } finally {
             os.close();
-            if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
-                JudoLogger.log("Cache(" + method + "): Saved in disk cache " + file.getAbsolutePath() + ".", JudoLogger.LogLevel.DEBUG);
+        }
+    }
+
+    @Override
+    public CacheResult getRawBody(CacheMethod method, DiskCacheKey key, int cacheLifeTime) {
+        File file = getFile(method, key);
+        CacheResult result = new CacheResult();
+        if (file.exists()) {
+            result.expired = cacheLifeTime != 0 && System.currentTimeMillis() - file.lastModified() >= cacheLifeTime;
+            if (!result.expired) {
+                try {
+                    CacheResult entryResult = CacheEntryFormat.mapBody(file, key);
+                    entryResult.time = file.lastModified();
+                    entryResult.size = file.length();
+                    return entryResult;
+                } catch (IOException e) {
+                    JudoLogger.log(e);
+                }
+            }
+            file.delete();
+        }
+        return result;
+    }
+
+    @Override
+    public void refresh(CacheMethod method, DiskCacheKey key) {
+        File file = getFile(method, key);
+        if (file.exists()) {
+            file.setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public CacheEntryOutputStream putRawBody(CacheMethod method, DiskCacheKey key, int cacheSize, Map<String, List<String>> headers) {
+        CacheEntryOutputStream os = openEntry(method, key, cacheSize);
+        if (os != null) {
+            try {
+                CacheEntryFormat.writeHeader(os, key, method.getTime(), headers);
+            } catch (IOException e) {
+                JudoLogger.log(e);
+                os.close();
+                return null;
             }
+        }
+        return os;
+    }
+
+    protected CacheEntryOutputStream openEntry(final CacheMethod method, final DiskCacheKey key, int cacheSize) {
+        File dir = getCacheDir(method);
+        File shardDir = new File(dir, key.getShard());
+        shardDir.mkdirs();
+        final File entryFile = new File(shardDir, key.getHash());
+        if (cacheSize > 0) {
+            trimToSize(method, dir, cacheSize);
+        }
+        try {
+            return new CacheEntryOutputStream(new File(shardDir, key.getHash() + ".tmp")) {
+                @Override
+                protected void onCommit(File tmpFile) throws IOException {
+                    if (!tmpFile.renameTo(entryFile)) {
+                        tmpFile.delete();
+                        throw new IOException("Can't rename " + tmpFile + " to " + entryFile);
+                    }
+                    TagIndex<File> index = tagIndex;
+                    if (index != null) {
+                        index.put(entryFile, key.getTags());
+                    }
+                    if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+                        JudoLogger.log("Cache(" + method + "): Saved in disk cache " + entryFile.getAbsolutePath() + ".", JudoLogger.LogLevel.DEBUG);
+                    }
+                }
+            };
         } catch (IOException e) {
             JudoLogger.log(e);
+            return null;
         }
+    }
 
+    @Override
+    public long warmUp(CacheMethod method, int cacheLifeTime, int cacheSize, long maxBytes, MemoryCache memoryCache) {
+        File[] files = listEntries(getCacheDir(method));
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                return Long.valueOf(f2.lastModified()).compareTo(f1.lastModified());
+            }
+        });
+        List<CacheResult> results = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        long bytes = 0;
+        for (File file : files) {
+            if (Thread.currentThread().isInterrupted() || (cacheSize > 0 && results.size() >= cacheSize)
+                    || bytes + file.length() > maxBytes) {
+                break;
+            }
+            if (cacheLifeTime != 0 && now - file.lastModified() >= cacheLifeTime) {
+                continue;
+            }
+            bytes += file.length();
+            InputStream is = null;
+            try {
+                is = new BufferedInputStream(new FileInputStream(file));
+                CacheResult result = CacheEntryFormat.readWithArgs(is, method.getReturnType(), cacheCodec);
+                if (result != null) {
+                    result.time = file.lastModified();
+                    results.add(result);
+                }
+            } catch (Exception e) {
+                JudoLogger.log(e);
+            } finally {
+                if (is != null) {
+                    try {
+                        is.close();
+                    } catch (IOException e) {
+                        JudoLogger.log(e);
+                    }
+                }
+            }
+        }
+        for (int i = results.size() - 1; i >= 0; i--) {
+            CacheResult result = results.get(i);
+            memoryCache.put(method.getMethodId(), result.args, result.object, cacheSize, result.headers, result.tags, result.time);
+        }
+        return bytes;
     }
 
-    private void trimToSize(File dir, int cacheSize) {
-        File[] files = dir.listFiles();
-        if (files != null && files.length > cacheSize) {
+    private File[] listEntries(File dir) {
+        List<File> entries = new ArrayList<>();
+        File[] shards = dir.listFiles();
+        if (shards != null) {
+            for (File shard : shards) {
+                File[] shardFiles = shard.listFiles();
+                if (shardFiles != null) {
+                    for (File shardFile : shardFiles) {
+                        if (!shardFile.getName().endsWith(".tmp")) {
+                            entries.add(shardFile);
+                        }
+                    }
+                } else {
+                    shard.delete();
+                }
+            }
+        }
+        return entries.toArray(new File[entries.size()]);
+    }
+
+    private void trimToSize(CacheMethod method, File dir, int cacheSize) {
+        File[] files = listEntries(dir);
+        if (files.length > cacheSize) {
             Arrays.sort(files, new Comparator<File>() {
                 public int compare(File f1, File f2) {
                     return Long.valueOf(f1.lastModified()).compareTo(f2.lastModified());
                 }
             });
             for (int i = 0; i < files.length - cacheSize; i++) {
-                files[i].delete();
+                if (files[i].delete() && cacheStats != null) {
+                    cacheStats.recordEviction(method.getMethodId(), method.getCacheLevel());
+                }
             }
         }
     }
@@ -86,6 +251,7 @@ public class DefaultDiskCache implements DiskCache {
         delete(file);
         file = getCacheDir(LocalCache.CacheLevel.DISK_DATA);
         delete(file);
+        tagIndex = null;
     }
 
     @Override
@@ -96,11 +262,65 @@ public class DefaultDiskCache implements DiskCache {
 
     @Override
     public void clearCache(CacheMethod method, Object... params) {
-        Integer hash = Arrays.deepHashCode(params);
-        File file = getCacheDir(method);
-        delete(new File(file, hash.toString()));
+        getFile(method, new DiskCacheKey(params)).delete();
     }
 
+    @Override
+    public void clearCacheByTag(String tag) {
+        for (File file : getTagIndex().removeTag(tag)) {
+            file.delete();
+        }
+    }
+
+    @Override
+    public void clearCacheByTagPrefix(String prefix) {
+        for (File file : getTagIndex().removeTagPrefix(prefix)) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Entries have no index, so tags are read from all entry headers on first invalidation
+     * and kept up to date by puts afterwards.
+     */
+    private synchronized TagIndex<File> getTagIndex() {
+        TagIndex<File> index = tagIndex;
+        if (index == null) {
+            index = new TagIndex<>();
+            tagIndex = index;
+            indexTags(index, getCacheDir(LocalCache.CacheLevel.DISK_CACHE));
+            indexTags(index, getCacheDir(LocalCache.CacheLevel.DISK_DATA));
+        }
+        return index;
+    }
+
+    private void indexTags(TagIndex<File> index, File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                indexTags(index, child);
+            }
+        } else if (file.isFile() && !file.getName().endsWith(".tmp")) {
+            InputStream is = null;
+            try {
+                is = new BufferedInputStream(new FileInputStream(file));
+                String[] tags = CacheEntryFormat.readTags(is);
+                if (tags.length > 0) {
+                    index.put(file, tags);
+                }
+            } catch (IOException e) {
+                JudoLogger.log(e);
+            } finally {
+                if (is != null) {
+                    try {
+                        is.close();
+                    } catch (IOException e) {
+                        JudoLogger.log(e);
+                    }
+                }
+            }
+        }
+    }
 
     private void delete(File f) {
         if (f.isDirectory()) {
@@ -111,6 +331,11 @@ public class DefaultDiskCache implements DiskCache {
             throw new RuntimeException(new FileNotFoundException("Failed to delete file: " + f));
     }
 
+    @Override
+    public void setCacheStats(CacheStats cacheStats) {
+        this.cacheStats = cacheStats;
+    }
+
     @Override
     public int getDebugFlags() {
         return debugFlags;
@@ -122,11 +347,20 @@ public class DefaultDiskCache implements DiskCache {
     }
 
 
-    private CacheResult loadObject(CacheMethod method, String hash, int cacheLifeTime) {
+    @Override
+    public CacheCodec getCacheCodec() {
+        return cacheCodec;
+    }
+
+    @Override
+    public void setCacheCodec(CacheCodec cacheCodec) {
+        this.cacheCodec = cacheCodec;
+    }
+
+    private CacheResult loadObject(CacheMethod method, DiskCacheKey key, int cacheLifeTime) {
         CacheResult result;
-        ObjectInputStream os = null;
-        InputStream fileStream;
-        File file = new File(getCacheDir(method), hash + "");
+        InputStream os = null;
+        File file = getFile(method, key);
 
         if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
             JudoLogger.log("Cache(" + method + "): Search in disk cache " + file.getAbsolutePath() + ".", JudoLogger.LogLevel.DEBUG);
@@ -135,15 +369,17 @@ public class DefaultDiskCache implements DiskCache {
         if (file.exists()) {
             if (cacheLifeTime == 0 || System.currentTimeMillis() - file.lastModified() < cacheLifeTime) {
                 try {
-                    fileStream = new BufferedInputStream(new FileInputStream(file));
-                    os = new ObjectInputStream(fileStream);
-                    result = (CacheResult) os.readObject();
+                    os = new BufferedInputStream(new FileInputStream(file));
+                    result = CacheEntryFormat.read(os, key, method.getReturnType(), cacheCodec);
+                    result.time = file.lastModified();
+                    result.size = file.length();
                     if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
                         JudoLogger.log("Cache(" + method + "): Get from disk cache " + file.getAbsolutePath() + ".", JudoLogger.LogLevel.DEBUG);
                     }
                     return result;
                 } catch (Exception e) {
                     JudoLogger.log(e);
+                    file.delete();
                 } finally {
                     if (os != null) {
                         try {
@@ -155,6 +391,9 @@ public class DefaultDiskCache implements DiskCache {
                 }
             } else {
                 file.delete();
+                result = new CacheResult();
+                result.expired = true;
+                return result;
             }
         }
         result = new CacheResult();
@@ -185,4 +424,8 @@ public class DefaultDiskCache implements DiskCache {
         return file;
     }
 
+    private File getFile(CacheMethod method, DiskCacheKey key) {
+        return new File(new File(getCacheDir(method), key.getShard()), key.getHash());
+    }
+
 }
@@ -4,8 +4,11 @@ import android.content.Context;
 import android.support.v4.util.LruCache;
 
 import com.github.kubatatami.judonetworking.Endpoint;
+import com.github.kubatatami.judonetworking.annotations.LocalCache;
 import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.TagIndex;
 import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStats;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
 
 import java.lang.reflect.Method;
@@ -14,6 +17,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created with IntelliJ IDEA.
@@ -25,9 +29,13 @@ public class DefaultMemoryCache implements MemoryCache {
 
     private int debugFlags;
 
+    private CacheStats cacheStats;
+
     private Map<Integer, LruCache<Integer, CacheObject>> cache
             = Collections.synchronizedMap(new HashMap<Integer, LruCache<Integer, CacheObject>>());
 
+    private final TagIndex<Long> tagIndex = new TagIndex<>();
+
 
     protected Context context;
 
@@ -55,6 +63,7 @@ public class DefaultMemoryCache implements MemoryCache {
                     result.result = true;
                     return result;
                 }
+                result.expired = true;
             }
         }
 
@@ -62,12 +71,32 @@ public class DefaultMemoryCache implements MemoryCache {
     }
 
     @Override
-    public void put(int methodId, Object params[], Object object, int cacheSize, Map<String, List<String>> headers) {
+    public void put(int methodId, Object params[], Object object, int cacheSize, Map<String, List<String>> headers, String[] tags) {
+        put(methodId, params, object, cacheSize, headers, tags, System.currentTimeMillis());
+    }
+
+    @Override
+    public void put(final int methodId, Object params[], Object object, int cacheSize, Map<String, List<String>> headers, String[] tags, long createTime) {
         if (!cache.containsKey(methodId)) {
-            cache.put(methodId, new LruCache<Integer, CacheObject>(cacheSize != 0 ? cacheSize : Integer.MAX_VALUE));
+            cache.put(methodId, new LruCache<Integer, CacheObject>(cacheSize != 0 ? cacheSize : Integer.MAX_VALUE) {
+                @Override
+                protected void entryRemoved(boolean evicted, Integer key, CacheObject oldValue, CacheObject newValue) {
+                    if (newValue == null) {
+                        tagIndex.remove(getTagKey(methodId, key));
+                    }
+                    if (evicted && cacheStats != null) {
+                        cacheStats.recordEviction(methodId, LocalCache.CacheLevel.MEMORY_ONLY);
+                    }
+                }
+            });
         }
         Integer hash = Arrays.deepHashCode(params);
-        cache.get(methodId).put(hash, new CacheObject(System.currentTimeMillis(), object, headers));
+        cache.get(methodId).put(hash, new CacheObject(createTime, object, headers));
+        if (tags != null && tags.length > 0) {
+            tagIndex.put(getTagKey(methodId, hash), tags);
+        } else {
+            tagIndex.remove(getTagKey(methodId, hash));
+        }
         if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
             JudoLogger.log("Cache(" + methodId + "): Saved in memory cache with hash:" + hash, JudoLogger.LogLevel.DEBUG);
         }
@@ -77,6 +106,7 @@ public class DefaultMemoryCache implements MemoryCache {
     @Override
     public void clearCache() {
         cache = Collections.synchronizedMap(new HashMap<Integer, LruCache<Integer, CacheObject>>());
+        tagIndex.clear();
 
     }
 
@@ -94,8 +124,11 @@ public class DefaultMemoryCache implements MemoryCache {
 
     @Override
     public void clearCache(int methodId) {
-        if (cache.containsKey(methodId)) {
-            cache.remove(methodId);
+        LruCache<Integer, CacheObject> methodCache = cache.remove(methodId);
+        if (methodCache != null && !tagIndex.isEmpty()) {
+            for (Integer hash : methodCache.snapshot().keySet()) {
+                tagIndex.remove(getTagKey(methodId, hash));
+            }
         }
     }
 
@@ -109,6 +142,34 @@ public class DefaultMemoryCache implements MemoryCache {
         }
     }
 
+    @Override
+    public void clearCacheByTag(String tag) {
+        removeKeys(tagIndex.removeTag(tag));
+    }
+
+    @Override
+    public void clearCacheByTagPrefix(String prefix) {
+        removeKeys(tagIndex.removeTagPrefix(prefix));
+    }
+
+    private void removeKeys(Set<Long> keys) {
+        for (Long key : keys) {
+            LruCache<Integer, CacheObject> methodCache = cache.get((int) (key >> 32));
+            if (methodCache != null) {
+                methodCache.remove((int) (long) key);
+            }
+        }
+    }
+
+    private static Long getTagKey(int methodId, int hash) {
+        return ((long) methodId << 32) | (hash & 0xffffffffL);
+    }
+
+    @Override
+    public void setCacheStats(CacheStats cacheStats) {
+        this.cacheStats = cacheStats;
+    }
+
     @Override
     public int getDebugFlags() {
         return debugFlags;
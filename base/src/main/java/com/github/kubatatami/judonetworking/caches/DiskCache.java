@@ -1,7 +1,10 @@
 package com.github.kubatatami.judonetworking.caches;
 
 import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheKey;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheLookup;
 import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStats;
 
 import java.util.List;
 import java.util.Map;
@@ -15,9 +18,40 @@ import java.util.Map;
  */
 public interface DiskCache {
 
-    CacheResult get(CacheMethod method, String hash, int cacheLifeTime);
+    CacheResult get(CacheMethod method, DiskCacheKey key, int cacheLifeTime);
 
-    void put(CacheMethod method, String hash, Object object, int maxSize, Map<String, List<String>> headers);
+    /**
+     * Resolves all lookups with single index pass and reads found entries in parallel.
+     *
+     * @return Results in order of lookups
+     */
+    List<CacheResult> getAll(List<DiskCacheLookup> lookups);
+
+    void put(CacheMethod method, DiskCacheKey key, Object object, int maxSize, Map<String, List<String>> headers);
+
+    /**
+     * @return Result with memory-mapped raw body as {@link java.nio.ByteBuffer} object
+     */
+    CacheResult getRawBody(CacheMethod method, DiskCacheKey key, int cacheLifeTime);
+
+    /**
+     * @return Stream of new raw body entry with header already written or null when entry can't be created
+     */
+    CacheEntryOutputStream putRawBody(CacheMethod method, DiskCacheKey key, int maxSize, Map<String, List<String>> headers);
+
+    /**
+     * Starts life time of existing entry again, e.g. after successful revalidation.
+     */
+    void refresh(CacheMethod method, DiskCacheKey key);
+
+    /**
+     * Loads fresh entries of method into memory cache, most recently used last. Only entries stored
+     * with serializable arguments can be loaded. Stops early when current thread is interrupted.
+     *
+     * @param maxBytes Max sum of entry sizes to read
+     * @return Bytes read
+     */
+    long warmUp(CacheMethod method, int cacheLifeTime, int cacheSize, long maxBytes, MemoryCache memoryCache);
 
     void clearCache();
 
@@ -25,9 +59,27 @@ public interface DiskCache {
 
     void clearCache(CacheMethod method, Object... params);
 
+    /**
+     * Removes entries stored with given tag in {@link DiskCacheKey#getTags()}.
+     */
+    void clearCacheByTag(String tag);
+
+    /**
+     * Removes entries with any tag starting with given prefix.
+     */
+    void clearCacheByTagPrefix(String prefix);
+
+    /**
+     * @param cacheStats Counters to record evictions to
+     */
+    void setCacheStats(CacheStats cacheStats);
+
     int getDebugFlags();
 
     void setDebugFlags(int debugFlags);
 
+    CacheCodec getCacheCodec();
+
+    void setCacheCodec(CacheCodec cacheCodec);
 
 }
@@ -0,0 +1,951 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import android.content.Context;
+
+import com.github.kubatatami.judonetworking.Endpoint;
+import com.github.kubatatami.judonetworking.annotations.LocalCache;
+import com.github.kubatatami.judonetworking.internals.cache.CacheEntryFormat;
+import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.CacheTags;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheKey;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheLookup;
+import com.github.kubatatami.judonetworking.internals.cache.TagIndex;
+import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStats;
+import com.github.kubatatami.judonetworking.logs.JudoLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Disk cache which keeps index of entries in memory and persists it in append-only journal.
+ * Lookups, freshness checks and LRU eviction don't touch file system metadata.
+ * Entries of {@link LocalCache.CacheLevel#DISK_CACHE} level share one byte budget,
+ * entries of both levels are limited per method by cache size. Entry files are spread over
+ * {@value #SHARD_COUNT} subdirectories to keep directory listings short. Entry tags are kept in journal
+ * and indexed in memory, so invalidation by tag touches only affected entries.
+ */
+public class JournaledDiskCache implements DiskCache {
+
+    protected static final String JOURNAL_FILE = "journal";
+
+    protected static final String JOURNAL_TMP_FILE = "journal.tmp";
+
+    protected static final byte OP_PUT = 1;
+
+    protected static final byte OP_READ = 2;
+
+    protected static final byte OP_REMOVE = 3;
+
+    protected static final byte OP_TAGS = 4;
+
+    protected static final int COMPACT_THRESHOLD = 2000;
+
+    protected static final int SHARD_COUNT = 256;
+
+    protected static final String LEGACY_CACHE_DIR = "cache";
+
+    protected Context context;
+
+    protected long maxSize = 32 * 1024 * 1024;
+
+    private final Map<LocalCache.CacheLevel, Journal> journals = new HashMap<>();
+
+    private int debugFlags;
+
+    private CacheStats cacheStats;
+
+    private CacheCodec cacheCodec = new SerializableCacheCodec();
+
+    public JournaledDiskCache(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public CacheResult get(CacheMethod method, DiskCacheKey key, int cacheLifeTime) {
+        Journal journal = getJournal(method.getCacheLevel());
+        String journalKey = getKey(method, key);
+        Entry entry = journal.get(journalKey);
+        CacheResult result = new CacheResult();
+        if (entry != null) {
+            result.expired = cacheLifeTime != 0 && System.currentTimeMillis() - entry.createTime >= cacheLifeTime;
+            if (!result.expired) {
+                CacheResult entryResult = readEntry(journal, entry, method, key);
+                if (entryResult != null) {
+                    entryResult.time = entry.createTime;
+                    entryResult.size = entry.size;
+                    if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+                        JudoLogger.log("Cache(" + method + "): Get from disk cache " + journalKey + ".", JudoLogger.LogLevel.DEBUG);
+                    }
+                    return entryResult;
+                }
+            }
+            journal.removeIfSame(entry);
+        }
+        return result;
+    }
+
+    @Override
+    public List<CacheResult> getAll(List<DiskCacheLookup> lookups) {
+        int count = lookups.size();
+        String[] journalKeys = new String[count];
+        Entry[] entries = new Entry[count];
+        Map<LocalCache.CacheLevel, List<Integer>> levels = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            DiskCacheLookup lookup = lookups.get(i);
+            journalKeys[i] = getKey(lookup.getMethod(), lookup.getKey());
+            List<Integer> indexes = levels.get(lookup.getMethod().getCacheLevel());
+            if (indexes == null) {
+                indexes = new ArrayList<>();
+                levels.put(lookup.getMethod().getCacheLevel(), indexes);
+            }
+            indexes.add(i);
+        }
+        for (Map.Entry<LocalCache.CacheLevel, List<Integer>> level : levels.entrySet()) {
+            getJournal(level.getKey()).getAll(journalKeys, level.getValue(), entries);
+        }
+
+        // entries are removed only after all reads, the same key may be looked up more than once
+        List<Integer> removeIndexes = new ArrayList<>();
+        List<CacheResult> results = new ArrayList<>(count);
+        List<Callable<CacheResult>> reads = new ArrayList<>();
+        List<Integer> readIndexes = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            final DiskCacheLookup lookup = lookups.get(i);
+            final Entry entry = entries[i];
+            CacheResult result = new CacheResult();
+            if (entry != null) {
+                final Journal journal = getJournal(lookup.getMethod().getCacheLevel());
+                int cacheLifeTime = lookup.getCacheLifeTime();
+                result.expired = cacheLifeTime != 0 && now - entry.createTime >= cacheLifeTime;
+                if (result.expired) {
+                    removeIndexes.add(i);
+                } else {
+                    reads.add(new Callable<CacheResult>() {
+                        @Override
+                        public CacheResult call() throws Exception {
+                            return readEntry(journal, entry, lookup.getMethod(), lookup.getKey());
+                        }
+                    });
+                    readIndexes.add(i);
+                }
+            }
+            results.add(result);
+        }
+
+        List<CacheResult> readResults = CacheReaders.readAll(reads);
+        for (int j = 0; j < readResults.size(); j++) {
+            int i = readIndexes.get(j);
+            CacheResult entryResult = readResults.get(j);
+            CacheMethod method = lookups.get(i).getMethod();
+            if (entryResult.result) {
+                entryResult.time = entries[i].createTime;
+                entryResult.size = entries[i].size;
+                results.set(i, entryResult);
+                if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+                    JudoLogger.log("Cache(" + method + "): Get from disk cache " + journalKeys[i] + ".", JudoLogger.LogLevel.DEBUG);
+                }
+            } else if (!Thread.currentThread().isInterrupted()) {
+                removeIndexes.add(i);
+            }
+        }
+        for (int i : removeIndexes) {
+            getJournal(lookups.get(i).getMethod().getCacheLevel()).removeIfSame(entries[i]);
+        }
+        return results;
+    }
+
+    @Override
+    public void put(CacheMethod method, DiskCacheKey key, Object object, int cacheSize, Map<String, List<String>> headers) {
+        CacheEntryOutputStream os = openEntry(method, key, cacheSize);
+        if (os == null) {
+            return;
+        }
+        try {
+            CacheEntryFormat.write(os, key, new CacheResult(object, true, method.getTime(), headers), method.getReturnType(), cacheCodec);
+            os.commit();
+        } catch (IOException e) {
+            JudoLogger.log(e);
+        } finally {
+            os.close();
+        }
+    }
+
+    @Override
+    public CacheResult getRawBody(CacheMethod method, DiskCacheKey key, int cacheLifeTime) {
+        Journal journal = getJournal(method.getCacheLevel());
+        String journalKey = getKey(method, key);
+        Entry entry = journal.get(journalKey);
+        CacheResult result = new CacheResult();
+        if (entry != null) {
+            result.expired = cacheLifeTime != 0 && System.currentTimeMillis() - entry.createTime >= cacheLifeTime;
+            if (!result.expired) {
+                try {
+                    CacheResult entryResult = CacheEntryFormat.mapBody(journal.getFile(entry), key);
+                    entryResult.time = entry.createTime;
+                    entryResult.size = entry.size;
+                    return entryResult;
+                } catch (IOException e) {
+                    JudoLogger.log(e);
+                }
+            }
+            journal.removeIfSame(entry);
+        }
+        return result;
+    }
+
+    @Override
+    public void refresh(CacheMethod method, DiskCacheKey key) {
+        getJournal(method.getCacheLevel()).refresh(getKey(method, key));
+    }
+
+    @Override
+    public CacheEntryOutputStream putRawBody(CacheMethod method, DiskCacheKey key, int cacheSize, Map<String, List<String>> headers) {
+        CacheEntryOutputStream os = openEntry(method, key, cacheSize);
+        if (os != null) {
+            try {
+                CacheEntryFormat.writeHeader(os, key, method.getTime(), headers);
+            } catch (IOException e) {
+                JudoLogger.log(e);
+                os.close();
+                return null;
+            }
+        }
+        return os;
+    }
+
+    protected CacheEntryOutputStream openEntry(final CacheMethod method, final DiskCacheKey key, final int cacheSize) {
+        final Journal journal = getJournal(method.getCacheLevel());
+        final String journalKey = getKey(method, key);
+        final long fileId = journal.newFileId();
+        try {
+            return new CacheEntryOutputStream(new File(journal.getShardDir(fileId), Long.toHexString(fileId) + ".tmp")) {
+                @Override
+                protected void onCommit(File file) {
+                    journal.put(new Entry(journalKey, getMethodKey(method), fileId, file.length(), method.getTime(), key.getTags()),
+                            file, cacheSize);
+                    if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+                        JudoLogger.log("Cache(" + method + "): Saved in disk cache " + journalKey + ".", JudoLogger.LogLevel.DEBUG);
+                    }
+                }
+            };
+        } catch (IOException e) {
+            JudoLogger.log(e);
+            return null;
+        }
+    }
+
+    @Override
+    public long warmUp(CacheMethod method, int cacheLifeTime, int cacheSize, long maxBytes, MemoryCache memoryCache) {
+        Journal journal = getJournal(method.getCacheLevel());
+        List<Entry> entries = journal.getMethodEntries(getMethodKey(method));
+        List<CacheResult> results = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        long bytes = 0;
+        for (Entry entry : entries) {
+            if (Thread.currentThread().isInterrupted() || (cacheSize > 0 && results.size() >= cacheSize)
+                    || bytes + entry.size > maxBytes) {
+                break;
+            }
+            if (cacheLifeTime != 0 && now - entry.createTime >= cacheLifeTime) {
+                continue;
+            }
+            bytes += entry.size;
+            InputStream is = null;
+            try {
+                is = new BufferedInputStream(new FileInputStream(journal.getFile(entry)));
+                CacheResult result = CacheEntryFormat.readWithArgs(is, method.getReturnType(), cacheCodec);
+                if (result != null) {
+                    result.time = entry.createTime;
+                    results.add(result);
+                }
+            } catch (Exception e) {
+                JudoLogger.log(e);
+            } finally {
+                close(is);
+            }
+        }
+        for (int i = results.size() - 1; i >= 0; i--) {
+            CacheResult result = results.get(i);
+            memoryCache.put(method.getMethodId(), result.args, result.object, cacheSize, result.headers, result.tags, result.time);
+        }
+        if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+            JudoLogger.log("Cache(" + method + "): Warmed up " + results.size() + " entries (" + bytes + " bytes).", JudoLogger.LogLevel.DEBUG);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void clearCache() {
+        getJournal(LocalCache.CacheLevel.DISK_CACHE).clear();
+        getJournal(LocalCache.CacheLevel.DISK_DATA).clear();
+    }
+
+    @Override
+    public void clearCache(CacheMethod method) {
+        getJournal(method.getCacheLevel()).removeMethod(getMethodKey(method));
+    }
+
+    @Override
+    public void clearCache(CacheMethod method, Object... params) {
+        getJournal(method.getCacheLevel()).remove(getKey(method, new DiskCacheKey(params)));
+    }
+
+    @Override
+    public void clearCacheByTag(String tag) {
+        getJournal(LocalCache.CacheLevel.DISK_CACHE).removeTag(tag, false);
+        getJournal(LocalCache.CacheLevel.DISK_DATA).removeTag(tag, false);
+    }
+
+    @Override
+    public void clearCacheByTagPrefix(String prefix) {
+        getJournal(LocalCache.CacheLevel.DISK_CACHE).removeTag(prefix, true);
+        getJournal(LocalCache.CacheLevel.DISK_DATA).removeTag(prefix, true);
+    }
+
+    @Override
+    public void setCacheStats(CacheStats cacheStats) {
+        this.cacheStats = cacheStats;
+    }
+
+    @Override
+    public int getDebugFlags() {
+        return debugFlags;
+    }
+
+    @Override
+    public void setDebugFlags(int debugFlags) {
+        this.debugFlags = debugFlags;
+    }
+
+    @Override
+    public CacheCodec getCacheCodec() {
+        return cacheCodec;
+    }
+
+    @Override
+    public void setCacheCodec(CacheCodec cacheCodec) {
+        this.cacheCodec = cacheCodec;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize Max size in bytes of all {@link LocalCache.CacheLevel#DISK_CACHE} entries
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        getJournal(LocalCache.CacheLevel.DISK_CACHE).trimToSize();
+    }
+
+    public long getSize(LocalCache.CacheLevel cacheLevel) {
+        return getJournal(cacheLevel).getSize();
+    }
+
+    protected CacheResult readEntry(Journal journal, Entry entry, CacheMethod method, DiskCacheKey key) {
+        InputStream is = null;
+        try {
+            is = new BufferedInputStream(new FileInputStream(journal.getFile(entry)));
+            return CacheEntryFormat.read(is, key, method.getReturnType(), cacheCodec);
+        } catch (Exception e) {
+            JudoLogger.log(e);
+            return null;
+        } finally {
+            close(is);
+        }
+    }
+
+    protected String getMethodKey(CacheMethod method) {
+        return method.getInterfaceName() + "/" + method.getUrl().hashCode() + "/" + method.getMethodId();
+    }
+
+    protected String getKey(CacheMethod method, DiskCacheKey key) {
+        return getMethodKey(method) + "/" + key.getHash();
+    }
+
+    protected synchronized Journal getJournal(LocalCache.CacheLevel cacheLevel) {
+        Journal journal = journals.get(cacheLevel);
+        if (journal == null) {
+            File root = getRootDir(cacheLevel);
+            if (cacheLevel == LocalCache.CacheLevel.DISK_CACHE) {
+                deleteLegacyCache(root);
+            }
+            journal = new Journal(new File(root, "judo_cache"), cacheLevel);
+            journals.put(cacheLevel, journal);
+        }
+        return journal;
+    }
+
+    protected File getRootDir(LocalCache.CacheLevel cacheLevel) {
+        return cacheLevel == LocalCache.CacheLevel.DISK_CACHE ? context.getCacheDir() : context.getFilesDir();
+    }
+
+    /**
+     * Entries written by {@link DefaultDiskCache} are never read by this cache, so its {@link LocalCache.CacheLevel#DISK_CACHE}
+     * directory is removed instead of being left behind in the app cache storage. {@link LocalCache.CacheLevel#DISK_DATA}
+     * entries in files directory are left untouched, apps still relying on them have to keep using {@link DefaultDiskCache}.
+     */
+    protected void deleteLegacyCache(File root) {
+        File legacyDir = new File(root, LEGACY_CACHE_DIR);
+        if (legacyDir.isDirectory()) {
+            delete(legacyDir);
+            if ((debugFlags & Endpoint.CACHE_DEBUG) > 0) {
+                JudoLogger.log("Cache: Deleted legacy disk cache " + legacyDir + ".", JudoLogger.LogLevel.DEBUG);
+            }
+        }
+    }
+
+    private static String getShardName(long fileId) {
+        return Integer.toHexString(0x100 | (int) (fileId & 0xFF)).substring(1);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                JudoLogger.log(e);
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        long position;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) {
+                position++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int result = super.read(buffer, offset, count);
+            if (result > 0) {
+                position += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long result = super.skip(count);
+            position += result;
+            return result;
+        }
+    }
+
+    protected static class Entry {
+
+        final String key;
+
+        final String methodKey;
+
+        final long fileId;
+
+        final long size;
+
+        final long createTime;
+
+        final String[] tags;
+
+        Entry(String key, String methodKey, long fileId, long size, long createTime, String[] tags) {
+            this.key = key;
+            this.methodKey = methodKey;
+            this.fileId = fileId;
+            this.size = size;
+            this.createTime = createTime;
+            this.tags = tags != null ? tags : CacheTags.NONE;
+        }
+    }
+
+    protected class Journal {
+
+        final File dir;
+
+        final File journalFile;
+
+        final LocalCache.CacheLevel cacheLevel;
+
+        final boolean sizeLimited;
+
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        final Map<String, LinkedHashMap<String, Entry>> methods = new HashMap<>();
+
+        long size;
+
+        long nextFileId;
+
+        int journalRecords;
+
+        DataOutputStream writer;
+
+        final boolean[] createdShards = new boolean[SHARD_COUNT];
+
+        final TagIndex<String> tagIndex = new TagIndex<>();
+
+        Journal(File dir, LocalCache.CacheLevel cacheLevel) {
+            this.dir = dir;
+            this.journalFile = new File(dir, JOURNAL_FILE);
+            this.cacheLevel = cacheLevel;
+            this.sizeLimited = cacheLevel == LocalCache.CacheLevel.DISK_CACHE;
+            dir.mkdirs();
+            load();
+        }
+
+        synchronized long newFileId() {
+            return nextFileId++;
+        }
+
+        synchronized long getSize() {
+            return size;
+        }
+
+        File getFile(Entry entry) {
+            return new File(new File(dir, getShardName(entry.fileId)), Long.toHexString(entry.fileId));
+        }
+
+        File getShardDir(long fileId) {
+            File shardDir = new File(dir, getShardName(fileId));
+            int shard = (int) (fileId & 0xFF);
+            synchronized (createdShards) {
+                if (!createdShards[shard]) {
+                    shardDir.mkdirs();
+                    createdShards[shard] = true;
+                }
+            }
+            return shardDir;
+        }
+
+        /**
+         * @return Entries of method, most recently used first
+         */
+        synchronized List<Entry> getMethodEntries(String methodKey) {
+            List<Entry> result = new ArrayList<>();
+            LinkedHashMap<String, Entry> methodEntries = methods.get(methodKey);
+            if (methodEntries != null) {
+                result.addAll(methodEntries.values());
+                Collections.reverse(result);
+            }
+            return result;
+        }
+
+        synchronized Entry get(String key) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                methods.get(entry.methodKey).get(key);
+                writeRecord(OP_READ, key, null, false);
+                compactIfNeeded();
+            }
+            return entry;
+        }
+
+        /**
+         * Resolves entries of given key indexes at once, missing entries are left null.
+         */
+        synchronized void getAll(String[] keys, List<Integer> indexes, Entry[] result) {
+            for (int index : indexes) {
+                Entry entry = entries.get(keys[index]);
+                if (entry != null) {
+                    methods.get(entry.methodKey).get(keys[index]);
+                    writeRecord(OP_READ, keys[index], null, false);
+                    result[index] = entry;
+                }
+            }
+            compactIfNeeded();
+        }
+
+        synchronized void put(Entry entry, File tmpFile, int cacheSize) {
+            removeEntry(entry.key);
+            if (!tmpFile.renameTo(getFile(entry))) {
+                tmpFile.delete();
+                return;
+            }
+            addEntry(entry);
+            writeRecord(OP_PUT, entry.key, entry, true);
+            if (cacheSize > 0) {
+                LinkedHashMap<String, Entry> methodEntries = methods.get(entry.methodKey);
+                Iterator<Entry> iterator = methodEntries.values().iterator();
+                while (methodEntries.size() > cacheSize && iterator.hasNext()) {
+                    Entry eldest = iterator.next();
+                    iterator.remove();
+                    deleteEntry(eldest);
+                    entries.remove(eldest.key);
+                    writeRecord(OP_REMOVE, eldest.key, null, false);
+                    onEviction(eldest);
+                }
+            }
+            trimToSize();
+            flush();
+            compactIfNeeded();
+        }
+
+        synchronized void refresh(String key) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                Entry refreshed = new Entry(key, entry.methodKey, entry.fileId, entry.size, System.currentTimeMillis(), entry.tags);
+                entries.put(key, refreshed);
+                methods.get(entry.methodKey).put(key, refreshed);
+                writeRecord(OP_PUT, key, refreshed, true);
+                compactIfNeeded();
+            }
+        }
+
+        synchronized void remove(String key) {
+            if (removeEntry(key)) {
+                flush();
+            }
+        }
+
+        /**
+         * Removes entry only if it wasn't replaced in the meantime, entry files are read outside of journal lock.
+         */
+        synchronized void removeIfSame(Entry entry) {
+            Entry current = entries.get(entry.key);
+            if (current != null && current.fileId == entry.fileId && removeEntry(entry.key)) {
+                flush();
+            }
+        }
+
+        synchronized void removeMethod(String methodKey) {
+            LinkedHashMap<String, Entry> methodEntries = methods.remove(methodKey);
+            if (methodEntries != null) {
+                for (Entry entry : methodEntries.values()) {
+                    entries.remove(entry.key);
+                    deleteEntry(entry);
+                    writeRecord(OP_REMOVE, entry.key, null, false);
+                }
+                flush();
+                compactIfNeeded();
+            }
+        }
+
+        /**
+         * @param prefix Removes entries with any tag starting with given tag instead of equal one
+         */
+        synchronized void removeTag(String tag, boolean prefix) {
+            Set<String> keys = prefix ? tagIndex.removeTagPrefix(tag) : tagIndex.removeTag(tag);
+            if (!keys.isEmpty()) {
+                for (String key : keys) {
+                    removeEntry(key);
+                }
+                flush();
+                compactIfNeeded();
+            }
+        }
+
+        synchronized void trimToSize() {
+            if (!sizeLimited) {
+                return;
+            }
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                removeFromMethod(eldest);
+                deleteEntry(eldest);
+                writeRecord(OP_REMOVE, eldest.key, null, false);
+                onEviction(eldest);
+            }
+        }
+
+        synchronized void clear() {
+            close(writer);
+            writer = null;
+            delete(dir);
+            dir.mkdirs();
+            synchronized (createdShards) {
+                Arrays.fill(createdShards, false);
+            }
+            entries.clear();
+            methods.clear();
+            tagIndex.clear();
+            size = 0;
+            journalRecords = 0;
+        }
+
+        private void addEntry(Entry entry) {
+            entries.put(entry.key, entry);
+            LinkedHashMap<String, Entry> methodEntries = methods.get(entry.methodKey);
+            if (methodEntries == null) {
+                methodEntries = new LinkedHashMap<>(16, 0.75f, true);
+                methods.put(entry.methodKey, methodEntries);
+            }
+            methodEntries.put(entry.key, entry);
+            tagIndex.put(entry.key, entry.tags);
+            size += entry.size;
+            nextFileId = Math.max(nextFileId, entry.fileId + 1);
+        }
+
+        private boolean removeEntry(String key) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                removeFromMethod(entry);
+                deleteEntry(entry);
+                writeRecord(OP_REMOVE, key, null, false);
+                return true;
+            }
+            return false;
+        }
+
+        private void removeFromMethod(Entry entry) {
+            LinkedHashMap<String, Entry> methodEntries = methods.get(entry.methodKey);
+            if (methodEntries != null) {
+                methodEntries.remove(entry.key);
+                if (methodEntries.isEmpty()) {
+                    methods.remove(entry.methodKey);
+                }
+            }
+        }
+
+        private void onEviction(Entry entry) {
+            CacheStats stats = cacheStats;
+            if (stats != null) {
+                int methodId = Integer.parseInt(entry.methodKey.substring(entry.methodKey.lastIndexOf('/') + 1));
+                stats.recordEviction(methodId, cacheLevel);
+            }
+        }
+
+        private void deleteEntry(Entry entry) {
+            size -= entry.size;
+            tagIndex.remove(entry.key);
+            getFile(entry).delete();
+        }
+
+        private void load() {
+            if (!journalFile.exists()) {
+                return;
+            }
+            long length = journalFile.length();
+            CountingInputStream counter = null;
+            int records = 0;
+            boolean clean = false;
+            try {
+                counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+                DataInputStream is = new DataInputStream(counter);
+                while (counter.position < length) {
+                    byte op = is.readByte();
+                    String key = readKey(is, length - counter.position);
+                    records++;
+                    if (op == OP_PUT) {
+                        String methodKey = readKey(is, length - counter.position);
+                        Entry entry = new Entry(key, methodKey, is.readLong(), is.readLong(), is.readLong(), null);
+                        Entry old = entries.remove(key);
+                        if (old != null) {
+                            removeFromMethod(old);
+                            size -= old.size;
+                        }
+                        addEntry(entry);
+                    } else if (op == OP_READ) {
+                        Entry entry = entries.get(key);
+                        if (entry != null) {
+                            methods.get(entry.methodKey).get(key);
+                        }
+                    } else if (op == OP_REMOVE) {
+                        Entry entry = entries.remove(key);
+                        if (entry != null) {
+                            removeFromMethod(entry);
+                            tagIndex.remove(key);
+                            size -= entry.size;
+                        }
+                    } else if (op == OP_TAGS) {
+                        int count = is.readInt();
+                        if (count < 0 || count > (length - counter.position) / 4) {
+                            throw new IOException("Invalid journal tag count: " + count);
+                        }
+                        String[] tags = new String[count];
+                        for (int i = 0; i < tags.length; i++) {
+                            tags[i] = readKey(is, length - counter.position);
+                        }
+                        Entry entry = entries.get(key);
+                        if (entry != null) {
+                            Entry tagged = new Entry(key, entry.methodKey, entry.fileId, entry.size, entry.createTime, tags);
+                            entries.put(key, tagged);
+                            methods.get(entry.methodKey).put(key, tagged);
+                            tagIndex.put(key, tags);
+                        }
+                    } else {
+                        throw new IOException("Unknown journal record: " + op);
+                    }
+                }
+                clean = true;
+            } catch (EOFException ignored) {
+            } catch (IOException | RuntimeException e) {
+                JudoLogger.log(e);
+            } finally {
+                close(counter);
+            }
+            journalRecords = records;
+            if (clean) {
+                compactIfNeeded();
+            } else {
+                // torn or corrupted tail, rewrite journal so new records don't follow garbage
+                compact();
+            }
+        }
+
+        private void compactIfNeeded() {
+            int redundantRecords = journalRecords - entries.size();
+            if (redundantRecords >= COMPACT_THRESHOLD && redundantRecords >= entries.size()) {
+                compact();
+            }
+        }
+
+        private void compact() {
+            close(writer);
+            writer = null;
+            File tmpFile = new File(dir, JOURNAL_TMP_FILE);
+            DataOutputStream os = null;
+            try {
+                os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+                for (Entry entry : entries.values()) {
+                    writeRecord(os, OP_PUT, entry.key, entry);
+                }
+                os.flush();
+                os.close();
+                os = null;
+                if (!tmpFile.renameTo(journalFile)) {
+                    throw new IOException("Can't replace journal " + journalFile);
+                }
+                journalRecords = entries.size();
+                deleteOrphanFiles();
+            } catch (IOException e) {
+                JudoLogger.log(e);
+            } finally {
+                close(os);
+            }
+        }
+
+        private void deleteOrphanFiles() {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                return;
+            }
+            Set<String> known = new HashSet<>();
+            for (Entry entry : entries.values()) {
+                known.add(Long.toHexString(entry.fileId));
+            }
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    File[] shardFiles = file.listFiles();
+                    if (shardFiles != null) {
+                        for (File shardFile : shardFiles) {
+                            String name = shardFile.getName();
+                            if (!name.endsWith(".tmp") && !known.contains(name)) {
+                                shardFile.delete();
+                            }
+                        }
+                    }
+                } else if (!file.getName().equals(JOURNAL_FILE)) {
+                    file.delete();
+                }
+            }
+        }
+
+        private void writeRecord(byte op, String key, Entry entry, boolean flush) {
+            try {
+                if (writer == null) {
+                    writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+                }
+                writeRecord(writer, op, key, entry);
+                journalRecords++;
+                if (flush) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                JudoLogger.log(e);
+            }
+        }
+
+        private void flush() {
+            if (writer != null) {
+                try {
+                    writer.flush();
+                } catch (IOException e) {
+                    JudoLogger.log(e);
+                }
+            }
+        }
+
+        private void writeRecord(DataOutputStream os, byte op, String key, Entry entry) throws IOException {
+            os.writeByte(op);
+            writeKey(os, key);
+            if (op == OP_PUT) {
+                writeKey(os, entry.methodKey);
+                os.writeLong(entry.fileId);
+                os.writeLong(entry.size);
+                os.writeLong(entry.createTime);
+                if (entry.tags.length > 0) {
+                    os.writeByte(OP_TAGS);
+                    writeKey(os, key);
+                    os.writeInt(entry.tags.length);
+                    for (String tag : entry.tags) {
+                        writeKey(os, tag);
+                    }
+                }
+            }
+        }
+
+        private void writeKey(DataOutputStream os, String key) throws IOException {
+            byte[] bytes = key.getBytes("UTF-8");
+            os.writeInt(bytes.length);
+            os.write(bytes);
+        }
+
+        /**
+         * @param remaining Bytes left in journal, longer keys can only come from corrupted record
+         */
+        private String readKey(DataInputStream is, long remaining) throws IOException {
+            int length = is.readInt();
+            if (length < 0 || length > remaining - 4) {
+                throw new IOException("Invalid journal key length: " + length);
+            }
+            byte[] bytes = new byte[length];
+            is.readFully(bytes);
+            return new String(bytes, "UTF-8");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.kubatatami.judonetworking.caches;
 
 import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStats;
 
 import java.lang.reflect.Method;
 import java.util.List;
@@ -18,7 +19,15 @@ public interface MemoryCache {
 
     CacheResult get(int methodId, Object params[], int cacheLifeTime, int cacheSize);
 
-    void put(int methodId, Object params[], Object object, int cacheSize, Map<String, List<String>> headers);
+    /**
+     * @param tags Tags of entry, see {@link com.github.kubatatami.judonetworking.annotations.CacheTag}
+     */
+    void put(int methodId, Object params[], Object object, int cacheSize, Map<String, List<String>> headers, String[] tags);
+
+    /**
+     * @param createTime Creation time of entry, e.g. of disk cache entry it's loaded from
+     */
+    void put(int methodId, Object params[], Object object, int cacheSize, Map<String, List<String>> headers, String[] tags, long createTime);
 
     void clearCache();
 
@@ -30,6 +39,21 @@ public interface MemoryCache {
 
     void clearCache(int methodId, Object... params);
 
+    /**
+     * Removes entries with given tag.
+     */
+    void clearCacheByTag(String tag);
+
+    /**
+     * Removes entries with any tag starting with given prefix.
+     */
+    void clearCacheByTagPrefix(String prefix);
+
+    /**
+     * @param cacheStats Counters to record evictions to
+     */
+    void setCacheStats(CacheStats cacheStats);
+
     int getDebugFlags();
 
     void setDebugFlags(int debugFlags);
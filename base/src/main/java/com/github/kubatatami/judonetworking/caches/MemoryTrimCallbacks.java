@@ -0,0 +1,38 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+/**
+ * Trims {@link ConcurrentMemoryCache} when system asks to release memory. Kept apart from the cache,
+ * because {@link ComponentCallbacks2} is available from API 14 only.
+ */
+public class MemoryTrimCallbacks implements ComponentCallbacks2 {
+
+    protected final ConcurrentMemoryCache memoryCache;
+
+    public MemoryTrimCallbacks(ConcurrentMemoryCache memoryCache) {
+        this.memoryCache = memoryCache;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            memoryCache.clearCache();
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            memoryCache.trimToSize(memoryCache.getSizeInBytes() / 2);
+        } else if (level == TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimToSize(memoryCache.getSizeInBytes() * 3 / 4);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        memoryCache.clearCache();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+
+    }
+}
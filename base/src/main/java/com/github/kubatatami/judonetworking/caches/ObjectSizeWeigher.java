@@ -0,0 +1,113 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Walks object graph and sums approximate sizes of strings, arrays, collections and fields.
+ * Estimate is rough but cheap compared to serialization.
+ */
+public class ObjectSizeWeigher implements Weigher {
+
+    protected static final int OBJECT_HEADER = 12;
+
+    protected static final int REFERENCE = 4;
+
+    protected static final int MAX_DEPTH = 32;
+
+    private final Map<Class<?>, Field[]> fieldsCache = new ConcurrentHashMap<>();
+
+    @Override
+    public int weigh(Object object) {
+        long size = weigh(object, new IdentityHashMap<Object, Boolean>(), 0);
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    protected long weigh(Object object, IdentityHashMap<Object, Boolean> visited, int depth) {
+        if (object == null || depth > MAX_DEPTH || visited.put(object, Boolean.TRUE) != null) {
+            return 0;
+        }
+        Class<?> clazz = object.getClass();
+        if (object instanceof String) {
+            return OBJECT_HEADER + 12 + 2L * ((String) object).length();
+        } else if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            return 16;
+        } else if (clazz.isEnum()) {
+            return 0;
+        } else if (clazz.isArray()) {
+            int length = Array.getLength(object);
+            Class<?> componentType = clazz.getComponentType();
+            if (componentType.isPrimitive()) {
+                return OBJECT_HEADER + 4 + (long) length * primitiveSize(componentType);
+            }
+            long size = OBJECT_HEADER + 4 + (long) length * REFERENCE;
+            for (int i = 0; i < length; i++) {
+                size += weigh(Array.get(object, i), visited, depth + 1);
+            }
+            return size;
+        } else if (object instanceof Collection) {
+            long size = OBJECT_HEADER + 16;
+            for (Object item : (Collection<?>) object) {
+                size += REFERENCE + weigh(item, visited, depth + 1);
+            }
+            return size;
+        } else if (object instanceof Map) {
+            long size = OBJECT_HEADER + 16;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                size += OBJECT_HEADER + 3 * REFERENCE + weigh(entry.getKey(), visited, depth + 1) + weigh(entry.getValue(), visited, depth + 1);
+            }
+            return size;
+        }
+        long size = OBJECT_HEADER;
+        for (Field field : getFields(clazz)) {
+            Class<?> type = field.getType();
+            if (type.isPrimitive()) {
+                size += primitiveSize(type);
+            } else {
+                size += REFERENCE;
+                try {
+                    size += weigh(field.get(object), visited, depth + 1);
+                } catch (IllegalAccessException ignored) {
+                }
+            }
+        }
+        return size;
+    }
+
+    protected Field[] getFields(Class<?> clazz) {
+        Field[] fields = fieldsCache.get(clazz);
+        if (fields == null) {
+            List<Field> list = new ArrayList<>();
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        list.add(field);
+                    }
+                }
+            }
+            fields = list.toArray(new Field[list.size()]);
+            fieldsCache.put(clazz, fields);
+        }
+        return fields;
+    }
+
+    protected static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else {
+            return 1;
+        }
+    }
+}
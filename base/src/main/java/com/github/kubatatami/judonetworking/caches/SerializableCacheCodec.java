@@ -0,0 +1,30 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Cache codec based on Java serialization. Cached objects have to implement {@link java.io.Serializable}.
+ */
+public class SerializableCacheCodec implements CacheCodec {
+
+    @Override
+    public void write(OutputStream outputStream, Object object, Type type) throws IOException {
+        ObjectOutputStream os = new ObjectOutputStream(outputStream);
+        os.writeObject(object);
+        os.flush();
+    }
+
+    @Override
+    public Object read(InputStream inputStream, Type type) throws IOException {
+        try {
+            return new ObjectInputStream(inputStream).readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+}
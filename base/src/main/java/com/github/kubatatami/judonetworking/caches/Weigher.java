@@ -0,0 +1,10 @@
+package com.github.kubatatami.judonetworking.caches;
+
+/**
+ * Estimates how many bytes of memory cached object takes.
+ */
+public interface Weigher {
+
+    int weigh(Object object);
+
+}
@@ -0,0 +1,340 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import com.github.kubatatami.judonetworking.Endpoint;
+import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheKey;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheLookup;
+import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStats;
+import com.github.kubatatami.judonetworking.logs.JudoLogger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Disk cache decorator which moves puts off the request thread to a single background writer.
+ * Repeated puts of the same key are coalesced, pending entries are visible to reads immediately.
+ * Cached objects are serialized later, so they shouldn't be modified after put.
+ */
+public class WriteBehindDiskCache implements DiskCache {
+
+    protected final DiskCache diskCache;
+
+    protected final ConcurrentMap<String, PendingPut> pending = new ConcurrentHashMap<>();
+
+    protected final Object writeLock = new Object();
+
+    protected final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "JudoNetworking DiskCacheWriter");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    protected final Thread shutdownHook = new Thread() {
+        @Override
+        public void run() {
+            flush(shutdownFlushTimeout);
+        }
+    };
+
+    protected long shutdownFlushTimeout = 2000;
+
+    public WriteBehindDiskCache(DiskCache diskCache) {
+        this.diskCache = diskCache;
+        writer.allowCoreThreadTimeOut(true);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public CacheResult get(CacheMethod method, DiskCacheKey key, int cacheLifeTime) {
+        PendingPut pendingPut = pending.get(getKey(method, key));
+        if (pendingPut != null && (cacheLifeTime == 0 || System.currentTimeMillis() - pendingPut.time < cacheLifeTime)) {
+            if ((getDebugFlags() & Endpoint.CACHE_DEBUG) > 0) {
+                JudoLogger.log("Cache(" + method + "): Get from pending disk write " + key + ".", JudoLogger.LogLevel.DEBUG);
+            }
+            return new CacheResult(pendingPut.object, true, pendingPut.time, pendingPut.headers);
+        }
+        return diskCache.get(method, key, cacheLifeTime);
+    }
+
+    @Override
+    public List<CacheResult> getAll(List<DiskCacheLookup> lookups) {
+        List<CacheResult> results = new ArrayList<>(lookups.size());
+        List<DiskCacheLookup> diskLookups = new ArrayList<>();
+        List<Integer> diskIndexes = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < lookups.size(); i++) {
+            DiskCacheLookup lookup = lookups.get(i);
+            PendingPut pendingPut = pending.get(getKey(lookup.getMethod(), lookup.getKey()));
+            if (pendingPut != null && (lookup.getCacheLifeTime() == 0 || now - pendingPut.time < lookup.getCacheLifeTime())) {
+                results.add(new CacheResult(pendingPut.object, true, pendingPut.time, pendingPut.headers));
+            } else {
+                results.add(null);
+                diskLookups.add(lookup);
+                diskIndexes.add(i);
+            }
+        }
+        if (!diskLookups.isEmpty()) {
+            List<CacheResult> diskResults = diskCache.getAll(diskLookups);
+            for (int i = 0; i < diskResults.size(); i++) {
+                results.set(diskIndexes.get(i), diskResults.get(i));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void put(CacheMethod method, DiskCacheKey key, Object object, int maxSize, Map<String, List<String>> headers) {
+        final String pendingKey = getKey(method, key);
+        PendingPut pendingPut = new PendingPut(method, key, object, maxSize, headers, method.getTime());
+        if (writer.isShutdown()) {
+            diskCache.put(method, key, object, maxSize, headers);
+        } else if (pending.put(pendingKey, pendingPut) == null) {
+            try {
+                writer.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        write(pendingKey);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                write(pendingKey);
+            }
+        }
+    }
+
+    protected void write(String key) {
+        synchronized (writeLock) {
+            PendingPut pendingPut;
+            while ((pendingPut = pending.get(key)) != null) {
+                try {
+                    diskCache.put(pendingPut.method, pendingPut.key, pendingPut.object, pendingPut.maxSize, pendingPut.headers);
+                } catch (RuntimeException e) {
+                    JudoLogger.log(e);
+                }
+                if (pending.remove(key, pendingPut)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public CacheResult getRawBody(CacheMethod method, DiskCacheKey key, int cacheLifeTime) {
+        return diskCache.getRawBody(method, key, cacheLifeTime);
+    }
+
+    @Override
+    public CacheEntryOutputStream putRawBody(CacheMethod method, DiskCacheKey key, int maxSize, Map<String, List<String>> headers) {
+        return diskCache.putRawBody(method, key, maxSize, headers);
+    }
+
+    @Override
+    public void refresh(CacheMethod method, DiskCacheKey key) {
+        String pendingKey = getKey(method, key);
+        PendingPut pendingPut = pending.get(pendingKey);
+        if (pendingPut != null) {
+            // entry written in the meantime isn't re-added without a writer task
+            pending.replace(pendingKey, pendingPut, pendingPut.refresh());
+        }
+        diskCache.refresh(method, key);
+    }
+
+    @Override
+    public long warmUp(CacheMethod method, int cacheLifeTime, int cacheSize, long maxBytes, MemoryCache memoryCache) {
+        return diskCache.warmUp(method, cacheLifeTime, cacheSize, maxBytes, memoryCache);
+    }
+
+    @Override
+    public void clearCache() {
+        synchronized (writeLock) {
+            pending.clear();
+            diskCache.clearCache();
+        }
+    }
+
+    @Override
+    public void clearCache(CacheMethod method) {
+        String prefix = getMethodKey(method);
+        synchronized (writeLock) {
+            for (Iterator<String> iterator = pending.keySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().startsWith(prefix)) {
+                    iterator.remove();
+                }
+            }
+            diskCache.clearCache(method);
+        }
+    }
+
+    @Override
+    public void clearCache(CacheMethod method, Object... params) {
+        synchronized (writeLock) {
+            pending.remove(getKey(method, new DiskCacheKey(params)));
+            diskCache.clearCache(method, params);
+        }
+    }
+
+    @Override
+    public void clearCacheByTag(String tag) {
+        synchronized (writeLock) {
+            removePending(tag, false);
+            diskCache.clearCacheByTag(tag);
+        }
+    }
+
+    @Override
+    public void clearCacheByTagPrefix(String prefix) {
+        synchronized (writeLock) {
+            removePending(prefix, true);
+            diskCache.clearCacheByTagPrefix(prefix);
+        }
+    }
+
+    protected void removePending(String tag, boolean prefix) {
+        for (Iterator<PendingPut> iterator = pending.values().iterator(); iterator.hasNext(); ) {
+            for (String entryTag : iterator.next().key.getTags()) {
+                if (prefix ? entryTag.startsWith(tag) : entryTag.equals(tag)) {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until all pending puts are written. Does nothing after {@link #shutdown()}.
+     *
+     * @return false if timeout elapsed first
+     */
+    public boolean flush(long timeout) {
+        if (writer.isShutdown()) {
+            return pending.isEmpty();
+        }
+        Future<?> future;
+        try {
+            future = writer.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (String key : pending.keySet()) {
+                        write(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return pending.isEmpty();
+        }
+        try {
+            future.get(timeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Flushes pending puts, stops the writer and unregisters shutdown hook. Puts after shutdown are written
+     * synchronously.
+     */
+    public void shutdown() {
+        flush(shutdownFlushTimeout);
+        writer.shutdown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+            // JVM is already shutting down
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    public void setShutdownFlushTimeout(long shutdownFlushTimeout) {
+        this.shutdownFlushTimeout = shutdownFlushTimeout;
+    }
+
+    @Override
+    public CacheCodec getCacheCodec() {
+        return diskCache.getCacheCodec();
+    }
+
+    @Override
+    public void setCacheCodec(CacheCodec cacheCodec) {
+        diskCache.setCacheCodec(cacheCodec);
+    }
+
+    @Override
+    public void setCacheStats(CacheStats cacheStats) {
+        diskCache.setCacheStats(cacheStats);
+    }
+
+    @Override
+    public int getDebugFlags() {
+        return diskCache.getDebugFlags();
+    }
+
+    @Override
+    public void setDebugFlags(int debugFlags) {
+        diskCache.setDebugFlags(debugFlags);
+    }
+
+    protected String getMethodKey(CacheMethod method) {
+        return method.getCacheLevel() + "/" + method.getInterfaceName() + "/" + method.getUrl().hashCode() + "/"
+                + method.getMethodId() + "/";
+    }
+
+    protected String getKey(CacheMethod method, DiskCacheKey key) {
+        return getMethodKey(method) + key.getHash();
+    }
+
+    protected static class PendingPut {
+
+        final CacheMethod method;
+
+        final DiskCacheKey key;
+
+        final Object object;
+
+        final int maxSize;
+
+        final Map<String, List<String>> headers;
+
+        final long time;
+
+        PendingPut(CacheMethod method, DiskCacheKey key, Object object, int maxSize, Map<String, List<String>> headers, long time) {
+            this.method = method;
+            this.key = key;
+            this.object = object;
+            this.maxSize = maxSize;
+            this.headers = headers;
+            this.time = time;
+        }
+
+        PendingPut refresh() {
+            return new PendingPut(method, key, object, maxSize, headers, System.currentTimeMillis());
+        }
+    }
+}
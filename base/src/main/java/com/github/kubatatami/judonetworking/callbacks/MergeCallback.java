@@ -6,6 +6,7 @@ import com.github.kubatatami.judonetworking.builders.operators.VoidFunction;
 import com.github.kubatatami.judonetworking.builders.operators.VoidOperator;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -105,11 +106,11 @@ public class MergeCallback<T> {
         onMergeError(e);
         onMergeFinish();
         cancelAll();
-        canceled = true;
     }
 
     private void cancelAll() {
-        for (AsyncResult asyncResult : asyncResultSet) {
+        canceled = true;
+        for (AsyncResult asyncResult : new ArrayList<>(asyncResultSet)) {
             asyncResult.cancel();
         }
     }
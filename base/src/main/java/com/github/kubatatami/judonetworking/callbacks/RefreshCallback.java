@@ -0,0 +1,13 @@
+package com.github.kubatatami.judonetworking.callbacks;
+
+import com.github.kubatatami.judonetworking.CacheInfo;
+
+/**
+ * Implemented by callbacks which want to receive fresh value after stale cache entry was returned,
+ * see {@link com.github.kubatatami.judonetworking.annotations.LocalCache#staleWhileRevalidate()}.
+ */
+public interface RefreshCallback<T> {
+
+    void onRefresh(T result, CacheInfo cacheInfo);
+
+}
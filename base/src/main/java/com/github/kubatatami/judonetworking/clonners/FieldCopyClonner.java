@@ -0,0 +1,302 @@
+package com.github.kubatatami.judonetworking.clonners;
+
+import com.github.kubatatami.judonetworking.exceptions.JudoException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Deep copy by reflection with per-class cached copy plans. Immutable types are shared, common collections
+ * are rebuilt and shared references and cycles are preserved. Only application classes are copied field
+ * by field. Objects of other platform classes or their subclasses, and objects which can't be created
+ * without constructor arguments, are cloned by {@link DefaultClonner}.
+ */
+public class FieldCopyClonner implements Clonner {
+
+    private static final int TYPE_OBJECT = 0;
+
+    private static final int TYPE_INT = 1;
+
+    private static final int TYPE_LONG = 2;
+
+    private static final int TYPE_BOOLEAN = 3;
+
+    private static final int TYPE_DOUBLE = 4;
+
+    private static final int TYPE_FLOAT = 5;
+
+    private static final int TYPE_SHORT = 6;
+
+    private static final int TYPE_BYTE = 7;
+
+    private static final int TYPE_CHAR = 8;
+
+    private static final String[] PLATFORM_PACKAGES = {"java.", "javax.", "android.", "dalvik.", "sun.", "com.android."};
+
+    protected final Set<Class<?>> immutableTypes = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+    protected final Map<Class<?>, ClassPlan> plans = new ConcurrentHashMap<>();
+
+    protected final Clonner fallbackClonner = new DefaultClonner();
+
+    public FieldCopyClonner() {
+        Collections.addAll(immutableTypes, String.class, Integer.class, Long.class, Boolean.class, Double.class,
+                Float.class, Short.class, Byte.class, Character.class, BigInteger.class, BigDecimal.class,
+                Class.class, UUID.class, Locale.class, Currency.class, URI.class, URL.class, Pattern.class);
+    }
+
+    /**
+     * Objects of given type will be shared between clones instead of copied.
+     */
+    public void addImmutableType(Class<?> type) {
+        immutableTypes.add(type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T clone(T object) throws JudoException {
+        try {
+            return (T) copy(object, new IdentityHashMap<Object, Object>());
+        } catch (JudoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JudoException("Can't clone object " + object.getClass().getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Object copy(Object object, IdentityHashMap<Object, Object> copies) throws Exception {
+        if (object == null) {
+            return null;
+        }
+        Class<?> type = object.getClass();
+        if (immutableTypes.contains(type) || object instanceof Enum) {
+            return object;
+        }
+        Object copy = copies.get(object);
+        if (copy != null) {
+            return copy;
+        }
+        if (type.isArray()) {
+            return copyArray(object, type, copies);
+        }
+        if (object instanceof Date) {
+            copy = ((Date) object).clone();
+            copies.put(object, copy);
+            return copy;
+        }
+        if (object instanceof Calendar) {
+            copy = ((Calendar) object).clone();
+            copies.put(object, copy);
+            return copy;
+        }
+        if (type == ArrayList.class || type == LinkedList.class || type == HashSet.class || type == LinkedHashSet.class) {
+            Collection<Object> collection = (Collection<Object>) type.newInstance();
+            copies.put(object, collection);
+            for (Object element : (Collection<?>) object) {
+                collection.add(copy(element, copies));
+            }
+            return collection;
+        }
+        if (type == HashMap.class || type == LinkedHashMap.class) {
+            Map<Object, Object> map = (Map<Object, Object>) type.newInstance();
+            copies.put(object, map);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                map.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+            }
+            return map;
+        }
+        if (type == TreeMap.class) {
+            TreeMap<Object, Object> map = new TreeMap<>(((TreeMap<Object, Object>) object).comparator());
+            copies.put(object, map);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                map.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+            }
+            return map;
+        }
+        if (type == TreeSet.class) {
+            TreeSet<Object> set = new TreeSet<>(((TreeSet<Object>) object).comparator());
+            copies.put(object, set);
+            for (Object element : (Collection<?>) object) {
+                set.add(copy(element, copies));
+            }
+            return set;
+        }
+        ClassPlan plan = getPlan(type);
+        if (plan.constructor == null) {
+            copy = fallbackClonner.clone(object);
+            copies.put(object, copy);
+            return copy;
+        }
+        copy = plan.constructor.newInstance();
+        copies.put(object, copy);
+        for (int i = 0; i < plan.fields.length; i++) {
+            copyField(plan.fields[i], plan.types[i], object, copy, copies);
+        }
+        return copy;
+    }
+
+    protected Object copyArray(Object array, Class<?> type, IdentityHashMap<Object, Object> copies) throws Exception {
+        int length = Array.getLength(array);
+        Class<?> componentType = type.getComponentType();
+        if (componentType.isPrimitive()) {
+            Object copy = Array.newInstance(componentType, length);
+            System.arraycopy(array, 0, copy, 0, length);
+            copies.put(array, copy);
+            return copy;
+        }
+        Object[] source = (Object[]) array;
+        Object[] copy = (Object[]) Array.newInstance(componentType, length);
+        copies.put(array, copy);
+        if (immutableTypes.contains(componentType)) {
+            System.arraycopy(source, 0, copy, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                copy[i] = copy(source[i], copies);
+            }
+        }
+        return copy;
+    }
+
+    protected void copyField(Field field, int type, Object source, Object target, IdentityHashMap<Object, Object> copies) throws Exception {
+        switch (type) {
+            case TYPE_INT:
+                field.setInt(target, field.getInt(source));
+                break;
+            case TYPE_LONG:
+                field.setLong(target, field.getLong(source));
+                break;
+            case TYPE_BOOLEAN:
+                field.setBoolean(target, field.getBoolean(source));
+                break;
+            case TYPE_DOUBLE:
+                field.setDouble(target, field.getDouble(source));
+                break;
+            case TYPE_FLOAT:
+                field.setFloat(target, field.getFloat(source));
+                break;
+            case TYPE_SHORT:
+                field.setShort(target, field.getShort(source));
+                break;
+            case TYPE_BYTE:
+                field.setByte(target, field.getByte(source));
+                break;
+            case TYPE_CHAR:
+                field.setChar(target, field.getChar(source));
+                break;
+            default:
+                field.set(target, copy(field.get(source), copies));
+        }
+    }
+
+    protected ClassPlan getPlan(Class<?> type) {
+        ClassPlan plan = plans.get(type);
+        if (plan == null) {
+            plan = new ClassPlan(type);
+            plans.put(type, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Internals of platform classes (e.g. hash table nodes) differ between platforms and can't be
+     * safely copied field by field.
+     */
+    protected static boolean isPlatformType(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            String name = current.getName();
+            for (String platformPackage : PLATFORM_PACKAGES) {
+                if (name.startsWith(platformPackage)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int getFieldType(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return TYPE_OBJECT;
+        } else if (type == int.class) {
+            return TYPE_INT;
+        } else if (type == long.class) {
+            return TYPE_LONG;
+        } else if (type == boolean.class) {
+            return TYPE_BOOLEAN;
+        } else if (type == double.class) {
+            return TYPE_DOUBLE;
+        } else if (type == float.class) {
+            return TYPE_FLOAT;
+        } else if (type == short.class) {
+            return TYPE_SHORT;
+        } else if (type == byte.class) {
+            return TYPE_BYTE;
+        } else {
+            return TYPE_CHAR;
+        }
+    }
+
+    protected static class ClassPlan {
+
+        final Constructor<?> constructor;
+
+        final Field[] fields;
+
+        final int[] types;
+
+        ClassPlan(Class<?> type) {
+            Constructor<?> noArgConstructor = null;
+            List<Field> fieldList = new ArrayList<>();
+            if (!isPlatformType(type)) {
+                try {
+                    noArgConstructor = type.getDeclaredConstructor();
+                    noArgConstructor.setAccessible(true);
+                    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                        for (Field field : current.getDeclaredFields()) {
+                            if (!Modifier.isStatic(field.getModifiers())) {
+                                field.setAccessible(true);
+                                fieldList.add(field);
+                            }
+                        }
+                    }
+                } catch (NoSuchMethodException | RuntimeException e) {
+                    noArgConstructor = null;
+                    fieldList.clear();
+                }
+            }
+            constructor = noArgConstructor;
+            fields = fieldList.toArray(new Field[fieldList.size()]);
+            types = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                types[i] = getFieldType(fields[i].getType());
+            }
+        }
+    }
+}
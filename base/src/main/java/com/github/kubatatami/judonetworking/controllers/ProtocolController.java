@@ -3,6 +3,7 @@ package com.github.kubatatami.judonetworking.controllers;
 import com.github.kubatatami.judonetworking.Endpoint;
 import com.github.kubatatami.judonetworking.Request;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
+import com.github.kubatatami.judonetworking.internals.CancelRegistry;
 import com.github.kubatatami.judonetworking.internals.results.RequestResult;
 import com.github.kubatatami.judonetworking.internals.streams.StreamEntity;
 
@@ -34,6 +35,13 @@ public abstract class ProtocolController {
         public String mimeType;
 
         public Map<String, String> customHeaders;
+
+        public CancelRegistry.Registration cancelRegistration;
+
+        /**
+         * Absolute time in millis after which response is useless, 0 if there is no deadline.
+         */
+        public long deadline;
     }
 
     public void setApiKey(String name, String key) {
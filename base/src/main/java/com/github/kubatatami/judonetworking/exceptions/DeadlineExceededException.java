@@ -0,0 +1,12 @@
+package com.github.kubatatami.judonetworking.exceptions;
+
+/**
+ * Thrown when request deadline passes before response is received.
+ */
+public class DeadlineExceededException extends ConnectionException {
+
+    public DeadlineExceededException(String detailMessage) {
+        super(detailMessage);
+    }
+
+}
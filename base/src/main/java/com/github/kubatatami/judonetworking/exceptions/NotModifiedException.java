@@ -0,0 +1,12 @@
+package com.github.kubatatami.judonetworking.exceptions;
+
+/**
+ * Thrown when server answers conditional request with 304 Not Modified.
+ */
+public class NotModifiedException extends HttpException {
+
+    public NotModifiedException(String message, int code) {
+        super(message, null, code);
+    }
+
+}
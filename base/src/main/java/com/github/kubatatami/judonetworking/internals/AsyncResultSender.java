@@ -7,6 +7,7 @@ import com.github.kubatatami.judonetworking.batches.Batch;
 import com.github.kubatatami.judonetworking.callbacks.AsyncResultCallback;
 import com.github.kubatatami.judonetworking.callbacks.CacheInfoCallback;
 import com.github.kubatatami.judonetworking.callbacks.Callback;
+import com.github.kubatatami.judonetworking.callbacks.RefreshCallback;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
 import com.github.kubatatami.judonetworking.internals.requests.RequestImpl;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
@@ -41,7 +42,7 @@ public class AsyncResultSender implements Runnable {
     protected CacheInfo cacheInfo;
 
     enum Type {
-        RESULT, ERROR, PROGRESS, START
+        RESULT, ERROR, PROGRESS, START, REFRESH
     }
 
     public AsyncResultSender(EndpointImpl rpc, RequestProxy requestProxy) {
@@ -88,6 +89,15 @@ public class AsyncResultSender implements Runnable {
         this.type = Type.RESULT;
     }
 
+    public AsyncResultSender(RequestImpl request, Object result, CacheInfo cacheInfo) {
+        this.result = result;
+        this.callback = request.getCallback();
+        this.request = request;
+        this.rpc = request.getRpc();
+        this.type = Type.REFRESH;
+        this.cacheInfo = cacheInfo;
+    }
+
     public AsyncResultSender(RequestImpl request, int progress) {
         this.progress = progress;
         this.callback = request.getCallback();
@@ -266,6 +276,9 @@ public class AsyncResultSender implements Runnable {
             case PROGRESS:
                 callback.onProgress(progress);
                 break;
+            case REFRESH:
+                ((RefreshCallback<Object>) callback).onRefresh(result, cacheInfo);
+                break;
         }
     }
 
@@ -0,0 +1,110 @@
+package com.github.kubatatami.judonetworking.internals;
+
+import com.github.kubatatami.judonetworking.internals.requests.RequestImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects auto batched requests of all services created by one endpoint.
+ * Window is flushed when auto batch time elapses or when it reaches max batch size.
+ * Waiting is done by one shared timer thread so no network thread is blocked.
+ */
+class AutoBatcher {
+
+    protected final EndpointImpl rpc;
+
+    protected final Object lock = new Object();
+
+    protected List<RequestImpl> window;
+
+    protected ScheduledFuture<?> windowFuture;
+
+    protected ScheduledExecutorService timer;
+
+    AutoBatcher(EndpointImpl rpc) {
+        this.rpc = rpc;
+    }
+
+    public void add(RequestImpl request) {
+        List<RequestImpl> requests = null;
+        synchronized (lock) {
+            if (window == null) {
+                final List<RequestImpl> newWindow = new ArrayList<>();
+                window = newWindow;
+                windowFuture = getTimer().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(takeWindow(newWindow));
+                    }
+                }, rpc.getProtocolController().getAutoBatchTime(), TimeUnit.MILLISECONDS);
+            }
+            window.add(request);
+            int maxSize = rpc.getAutoBatchMaxSize();
+            if (maxSize > 0 && window.size() >= maxSize) {
+                windowFuture.cancel(false);
+                requests = window;
+                window = null;
+                windowFuture = null;
+            }
+        }
+        if (requests != null) {
+            flush(requests);
+        }
+    }
+
+    protected List<RequestImpl> takeWindow(List<RequestImpl> requests) {
+        synchronized (lock) {
+            if (window != requests) {
+                return null;
+            }
+            window = null;
+            windowFuture = null;
+            return requests;
+        }
+    }
+
+    protected void flush(List<RequestImpl> requests) {
+        if (requests == null || requests.size() == 0) {
+            return;
+        }
+        if (requests.size() == 1) {
+            RequestImpl request = requests.get(0);
+            Future<?> future = rpc.getExecutorService().submit(request);
+            request.setFuture(future);
+        } else {
+            final RequestProxy proxy = new RequestProxy(rpc, EndpointImpl.BatchMode.AUTO, null);
+            proxy.batchRequests.addAll(requests);
+            rpc.getExecutorService().execute(new Runnable() {
+                @Override
+                public void run() {
+                    proxy.callBatch();
+                }
+            });
+        }
+    }
+
+    protected ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "JudoAutoBatch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            timer = executor;
+        }
+        return timer;
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.github.kubatatami.judonetworking.internals;
+
+import android.os.Process;
+
+import com.github.kubatatami.judonetworking.Endpoint;
+import com.github.kubatatami.judonetworking.annotations.LocalCache;
+import com.github.kubatatami.judonetworking.annotations.RequestMethod;
+import com.github.kubatatami.judonetworking.callbacks.Callback;
+import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.stats.MethodStat;
+import com.github.kubatatami.judonetworking.logs.JudoLogger;
+import com.github.kubatatami.judonetworking.utils.ReflectionCache;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads disk cache entries of api interface into memory cache on background thread of lowest priority.
+ * Methods called most often according to time profiler stats are loaded first, until byte budget is used.
+ */
+class CacheWarmUp implements Runnable {
+
+    protected final EndpointImpl rpc;
+
+    protected final Class<?> apiInterface;
+
+    protected final long maxBytes;
+
+    CacheWarmUp(EndpointImpl rpc, Class<?> apiInterface, long maxBytes) {
+        this.rpc = rpc;
+        this.apiInterface = apiInterface;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+        long bytes = 0;
+        for (Method method : getRankedMethods()) {
+            if (Thread.currentThread().isInterrupted() || bytes >= maxBytes) {
+                break;
+            }
+            bytes += warmUp(method, maxBytes - bytes);
+        }
+        if ((rpc.getDebugFlags() & Endpoint.CACHE_DEBUG) > 0) {
+            JudoLogger.log("Cache warm-up of " + apiInterface.getSimpleName() + " loaded " + bytes + " bytes.", JudoLogger.LogLevel.DEBUG);
+        }
+    }
+
+    protected long warmUp(Method method, long maxBytes) {
+        LocalCache localCache = ReflectionCache.getAnnotationInherited(method, LocalCache.class);
+        LocalCache.CacheLevel level = localCache.cacheLevel() == LocalCache.CacheLevel.DEFAULT
+                ? rpc.getDefaultMethodCacheLevel() : localCache.cacheLevel();
+        if (level == LocalCache.CacheLevel.MEMORY_ONLY || localCache.rawBody()) {
+            return 0;
+        }
+        int lifeTime = localCache.lifeTime() == LocalCache.DEFAULT ? rpc.getDefaultMethodCacheLifeTime() : localCache.lifeTime();
+        int size = localCache.size() == LocalCache.DEFAULT ? rpc.getDefaultMethodCacheSize() : localCache.size();
+        RequestMethod ann = ReflectionCache.getAnnotation(method, RequestMethod.class);
+        CacheMethod cacheMethod = new CacheMethod(CacheMethod.getMethodId(method), RequestProxy.createMethodName(method, ann),
+                method.getDeclaringClass().getSimpleName(), rpc.getUrl(), level, getReturnType(method, ann));
+        return rpc.getDiskCache().warmUp(cacheMethod, lifeTime, size, maxBytes, rpc.getMemoryCache());
+    }
+
+    protected List<Method> getRankedMethods() {
+        final Map<String, MethodStat> stats = rpc.getStats();
+        List<Method> methods = new ArrayList<>();
+        for (Method method : apiInterface.getMethods()) {
+            RequestMethod ann = ReflectionCache.getAnnotation(method, RequestMethod.class);
+            LocalCache localCache = ReflectionCache.getAnnotationInherited(method, LocalCache.class);
+            if (ann != null && localCache != null && localCache.enabled()) {
+                methods.add(method);
+            }
+        }
+        Collections.sort(methods, new Comparator<Method>() {
+            @Override
+            public int compare(Method lhs, Method rhs) {
+                long lhsCount = getRequestCount(stats, lhs);
+                long rhsCount = getRequestCount(stats, rhs);
+                return lhsCount > rhsCount ? -1 : (lhsCount == rhsCount ? 0 : 1);
+            }
+        });
+        return methods;
+    }
+
+    protected static long getRequestCount(Map<String, MethodStat> stats, Method method) {
+        MethodStat stat = stats.get(RequestProxy.createMethodName(method, ReflectionCache.getAnnotation(method, RequestMethod.class)));
+        return stat != null ? stat.requestCount - stat.errors : 0;
+    }
+
+    protected static Type getReturnType(Method method, RequestMethod ann) {
+        if (!ann.async()) {
+            return method.getReturnType();
+        }
+        Type[] genericTypes = method.getGenericParameterTypes();
+        if (genericTypes.length > 0 && genericTypes[genericTypes.length - 1] instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) genericTypes[genericTypes.length - 1];
+            if (Callback.class.isAssignableFrom((Class<?>) parameterizedType.getRawType())) {
+                return parameterizedType.getActualTypeArguments()[0];
+            }
+        }
+        return Void.class;
+    }
+}
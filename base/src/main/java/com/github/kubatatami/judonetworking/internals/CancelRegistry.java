@@ -0,0 +1,106 @@
+package com.github.kubatatami.judonetworking.internals;
+
+import com.github.kubatatami.judonetworking.internals.requests.RequestImpl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps requests to transport calls which are sending them.
+ * Call is cancelled on the cancelling thread when all its requests are cancelled.
+ */
+public class CancelRegistry {
+
+    private final ConcurrentHashMap<RequestImpl, Registration> registrations = new ConcurrentHashMap<>();
+
+    public Registration register(RequestImpl request) {
+        return register(Collections.singletonList(request));
+    }
+
+    public Registration register(List<RequestImpl> requests) {
+        Registration registration = new Registration(requests.size());
+        for (RequestImpl request : requests) {
+            registrations.put(request, registration);
+            if (request.isCancelled()) {
+                registration.memberCancelled(request);
+            }
+        }
+        return registration;
+    }
+
+    public void unregister(List<RequestImpl> requests, Registration registration) {
+        for (RequestImpl request : requests) {
+            registrations.remove(request, registration);
+        }
+    }
+
+    public void unregister(RequestImpl request, Registration registration) {
+        registrations.remove(request, registration);
+    }
+
+    public void cancel(RequestImpl request) {
+        Registration registration = registrations.remove(request);
+        if (registration != null) {
+            registration.memberCancelled(request);
+        }
+    }
+
+    public int size() {
+        return registrations.size();
+    }
+
+    public interface Cancellable {
+
+        void cancel();
+
+    }
+
+    public static class Registration {
+
+        private final int members;
+
+        private final Set<RequestImpl> cancelledMembers = new HashSet<>();
+
+        private Cancellable cancellable;
+
+        private boolean cancelled;
+
+        Registration(int members) {
+            this.members = members;
+        }
+
+        /**
+         * @return False if registration is already cancelled and call shouldn't be started.
+         */
+        public synchronized boolean attach(Cancellable cancellable) {
+            if (cancelled) {
+                return false;
+            }
+            this.cancellable = cancellable;
+            return true;
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        void memberCancelled(RequestImpl request) {
+            Cancellable toCancel;
+            synchronized (this) {
+                cancelledMembers.add(request);
+                if (cancelled || cancelledMembers.size() < members) {
+                    return;
+                }
+                cancelled = true;
+                toCancel = cancellable;
+                cancellable = null;
+            }
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+        }
+    }
+}
@@ -2,7 +2,11 @@ package com.github.kubatatami.judonetworking.internals;
 
 import com.github.kubatatami.judonetworking.Request;
 import com.github.kubatatami.judonetworking.controllers.ProtocolController;
+import com.github.kubatatami.judonetworking.internals.stats.ExecutorStat;
 import com.github.kubatatami.judonetworking.logs.ErrorLogger;
+import com.github.kubatatami.judonetworking.transports.ConcurrencyLimiter;
+
+import java.util.Map;
 
 /**
  * Created by Kuba on 09/04/14.
@@ -11,12 +15,35 @@ public interface EndpointBase {
 
     boolean isIdleNow();
 
+    /**
+     * @return Number of requests started and not finished yet.
+     */
+    int getInFlightCount();
+
+    int getInFlightCount(String methodName);
+
+    /**
+     * @return Snapshot of in-flight requests count per method name.
+     */
+    Map<String, Integer> getInFlightCounts();
+
     /**
      * @param connectionTimeout
      * @param methodTimeout
      */
     void setTimeouts(int connectionTimeout, int methodTimeout);
 
+    int getRequestDeadline();
+
+    /**
+     * Sets time budget of request counted from its invocation. Time spent in queue is included,
+     * connect and read timeouts are shortened to the remaining budget and requests which exceed it
+     * are dropped with {@link com.github.kubatatami.judonetworking.exceptions.DeadlineExceededException}.
+     *
+     * @param requestDeadline Budget in millis, 0 disables deadlines
+     */
+    void setRequestDeadline(int requestDeadline);
+
     /**
      * @param alwaysMainThread
      */
@@ -47,6 +74,30 @@ public interface EndpointBase {
 
     void setThreadPriority(int threadPriority);
 
+    int getNetworkLanes();
+
+    /**
+     * Sets number of requests which may be executed at the same time. Other requests wait in priority queue.
+     *
+     * @param networkLanes
+     */
+    void setNetworkLanes(int networkLanes);
+
+    ConcurrencyLimiter getConcurrencyLimiter();
+
+    /**
+     * Sets limiter which decides how many requests may be sent to one host at the same time,
+     * for example {@link com.github.kubatatami.judonetworking.transports.AimdConcurrencyLimiter}.
+     *
+     * @param concurrencyLimiter Limiter or null to disable limiting
+     */
+    void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter);
+
+    /**
+     * @return Queue depth and wait time statistics of request executor.
+     */
+    ExecutorStat getExecutorStat();
+
 
     ProtocolController getProtocolController();
 
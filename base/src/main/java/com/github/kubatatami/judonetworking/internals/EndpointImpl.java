@@ -1,10 +1,13 @@
 package com.github.kubatatami.judonetworking.internals;
 
+import android.content.ComponentCallbacks;
 import android.content.Context;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 
 import com.github.kubatatami.judonetworking.AsyncResult;
+import com.github.kubatatami.judonetworking.CacheInfo;
 import com.github.kubatatami.judonetworking.Endpoint;
 import com.github.kubatatami.judonetworking.EndpointClassic;
 import com.github.kubatatami.judonetworking.Request;
@@ -12,23 +15,31 @@ import com.github.kubatatami.judonetworking.annotations.IgnoreNullParam;
 import com.github.kubatatami.judonetworking.annotations.LocalCache;
 import com.github.kubatatami.judonetworking.batches.Batch;
 import com.github.kubatatami.judonetworking.builders.BatchBuilder;
-import com.github.kubatatami.judonetworking.caches.DefaultDiskCache;
-import com.github.kubatatami.judonetworking.caches.DefaultMemoryCache;
+import com.github.kubatatami.judonetworking.caches.ConcurrentMemoryCache;
 import com.github.kubatatami.judonetworking.caches.DiskCache;
+import com.github.kubatatami.judonetworking.caches.JournaledDiskCache;
 import com.github.kubatatami.judonetworking.caches.MemoryCache;
+import com.github.kubatatami.judonetworking.caches.MemoryTrimCallbacks;
+import com.github.kubatatami.judonetworking.caches.WriteBehindDiskCache;
 import com.github.kubatatami.judonetworking.callbacks.Callback;
 import com.github.kubatatami.judonetworking.clonners.Clonner;
 import com.github.kubatatami.judonetworking.clonners.DefaultClonner;
 import com.github.kubatatami.judonetworking.controllers.ProtocolController;
 import com.github.kubatatami.judonetworking.exceptions.CancelException;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
+import com.github.kubatatami.judonetworking.internals.cache.CacheKey;
+import com.github.kubatatami.judonetworking.internals.cache.CacheTags;
 import com.github.kubatatami.judonetworking.internals.executors.JudoExecutor;
 import com.github.kubatatami.judonetworking.internals.requests.RequestImpl;
 import com.github.kubatatami.judonetworking.internals.requests.RequestOptions;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStat;
+import com.github.kubatatami.judonetworking.internals.stats.CacheStats;
+import com.github.kubatatami.judonetworking.internals.stats.ExecutorStat;
 import com.github.kubatatami.judonetworking.internals.stats.MethodStat;
 import com.github.kubatatami.judonetworking.internals.virtuals.VirtualServerInfo;
 import com.github.kubatatami.judonetworking.logs.ErrorLogger;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
+import com.github.kubatatami.judonetworking.transports.ConcurrencyLimiter;
 import com.github.kubatatami.judonetworking.transports.TransportLayer;
 import com.github.kubatatami.judonetworking.utils.ReflectionCache;
 
@@ -49,7 +60,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EndpointImpl implements Endpoint, EndpointClassic {
 
@@ -67,6 +81,20 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
 
     private BatchTimeoutMode timeoutMode = BatchTimeoutMode.TIMEOUTS_SUM;
 
+    private int batchConcurrency = 4;
+
+    private int batchSplitParts = 1;
+
+    private int autoBatchMaxSize = 20;
+
+    private int requestDeadline = 0;
+
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    private final AutoBatcher autoBatcher = new AutoBatcher(this);
+
+    private final CancelRegistry cancelRegistry = new CancelRegistry();
+
     private MemoryCache memoryCache;
 
     private DiskCache diskCache;
@@ -75,6 +103,8 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
 
     private Map<String, MethodStat> stats;
 
+    private final CacheStats cacheStats = new CacheStats();
+
     private File statFile;
 
     private float percentLoss;
@@ -83,6 +113,8 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
 
     private Set<ErrorLogger> errorLoggers = new HashSet<>();
 
+    private ComponentCallbacks memoryCacheCallbacks;
+
     private Clonner clonner = new DefaultClonner();
 
     private int delay = 0;
@@ -95,11 +127,15 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
 
     private Map<Integer, RequestImpl> singleCallMethods = new HashMap<>();
 
-    private Set<Integer> requestIds = Collections.synchronizedSet(new HashSet<Integer>());
+    private final Map<CacheKey, RequestImpl> coalescedRequests = new HashMap<>();
+
+    private final ConcurrentHashMap<Integer, Request> inFlightRequests = new ConcurrentHashMap<>();
 
-    private Set<String> requestNames = Collections.synchronizedSet(new HashSet<String>());
+    private final ConcurrentHashMap<String, AtomicInteger> inFlightMethodCounts = new ConcurrentHashMap<>();
 
-    private int id = 0;
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+
+    private final AtomicInteger id = new AtomicInteger();
 
     private JudoExecutor executorService = new JudoExecutor(this);
 
@@ -125,14 +161,18 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
         this.protocolController = protocolController;
         this.url = url;
         this.statFile = new File(context.getCacheDir(), "stats");
-        this.memoryCache = new DefaultMemoryCache(context);
-        this.diskCache = new DefaultDiskCache(context);
+        setMemoryCache(new ConcurrentMemoryCache(context));
+        setDiskCache(new WriteBehindDiskCache(new JournaledDiskCache(context)));
     }
 
     public HashMap<Class, VirtualServerInfo> getVirtualServers() {
         return virtualServers;
     }
 
+    public CancelRegistry getCancelRegistry() {
+        return cancelRegistry;
+    }
+
     public JudoExecutor getExecutorService() {
         return executorService;
     }
@@ -160,11 +200,34 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
     @Override
     public boolean isIdleNow() {
         if ((getDebugFlags() & Endpoint.INTERNAL_DEBUG) > 0) {
-            for (String name : requestNames) {
-                JudoLogger.longLog("Request in progress", name, JudoLogger.LogLevel.DEBUG);
+            for (Request request : inFlightRequests.values()) {
+                JudoLogger.longLog("Request in progress", request.getName(), JudoLogger.LogLevel.DEBUG);
+            }
+        }
+        return inFlightCount.get() == 0;
+    }
+
+    @Override
+    public int getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    @Override
+    public int getInFlightCount(String methodName) {
+        AtomicInteger count = inFlightMethodCounts.get(methodName);
+        return count != null ? count.get() : 0;
+    }
+
+    @Override
+    public Map<String, Integer> getInFlightCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, AtomicInteger> entry : inFlightMethodCounts.entrySet()) {
+            int count = entry.getValue().get();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
             }
         }
-        return requestIds.size() == 0;
+        return counts;
     }
 
     @Override
@@ -173,6 +236,26 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
         requestConnector.setMethodTimeout(methodTimeout);
     }
 
+    @Override
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    @Override
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @Override
+    public int getRequestDeadline() {
+        return requestDeadline;
+    }
+
+    @Override
+    public void setRequestDeadline(int requestDeadline) {
+        this.requestDeadline = requestDeadline;
+    }
+
     @Override
     public void setCallbackThread(boolean alwaysMainThread) {
         if (alwaysMainThread) {
@@ -203,7 +286,7 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
     public <T> AsyncResult sendAsyncRequest(String url, String name, RequestOptions requestOptions, Callback<T> callback, Object... args) {
         Type returnType = ((ParameterizedType) callback.getClass().getGenericSuperclass()).getActualTypeArguments()[0];
         RequestImpl request = new RequestImpl(
-                ++id, this, null,
+                getNextId(), this, null,
                 name, requestOptions, args,
                 returnType, getRequestConnector().getMethodTimeout(),
                 (Callback<Object>) callback, getProtocolController().getAdditionalRequestData());
@@ -217,7 +300,7 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
 
     @SuppressWarnings("unchecked")
     public <T> T sendRequest(String url, String name, Type returnType, RequestOptions requestOptions, Object... args) throws JudoException {
-        RequestImpl request = new RequestImpl(++id, this, null, name, requestOptions, args,
+        RequestImpl request = new RequestImpl(getNextId(), this, null, name, requestOptions, args,
                 returnType,
                 getRequestConnector().getMethodTimeout(),
                 null, getProtocolController().getAdditionalRequestData());
@@ -342,6 +425,44 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
         this.timeoutMode = mode;
     }
 
+    @Override
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    @Override
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    @Override
+    public int getBatchSplitParts() {
+        return batchSplitParts;
+    }
+
+    @Override
+    public void setBatchSplitParts(int parts) {
+        this.batchSplitParts = parts;
+    }
+
+    @Override
+    public int getAutoBatchMaxSize() {
+        return autoBatchMaxSize;
+    }
+
+    @Override
+    public void setAutoBatchMaxSize(int autoBatchMaxSize) {
+        this.autoBatchMaxSize = autoBatchMaxSize;
+    }
+
+    int getNextId() {
+        return id.incrementAndGet();
+    }
+
+    AutoBatcher getAutoBatcher() {
+        return autoBatcher;
+    }
+
     @Override
     public void setCacheEnabled(boolean enabled) {
         this.cacheEnabled = enabled;
@@ -358,28 +479,50 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
     }
 
     public void startRequest(Request request) {
-        requestIds.add(request.getId());
-        JudoLogger.log("Add request(" + request.getName() + ":" + request.getId() + ")", JudoLogger.LogLevel.VERBOSE);
-        requestNames.add(request.getName());
+        if (inFlightRequests.put(request.getId(), request) != null) {
+            return;
+        }
+        final int count = inFlightCount.incrementAndGet();
+        getInFlightMethodCount(request.getName()).incrementAndGet();
+        if ((debugFlags & THREAD_DEBUG) > 0) {
+            JudoLogger.log("Add request(" + request.getName() + ":" + request.getId() + ")", JudoLogger.LogLevel.VERBOSE);
+        }
         if (onRequestEventListener != null) {
-            onRequestEventListener.onStart(request, requestIds.size());
+            onRequestEventListener.onStart(request, count);
         }
     }
 
     public void stopRequest(final Request request) {
-        requestIds.remove(request.getId());
-        JudoLogger.log("Remove request(" + request.getName() + ":" + request.getId() + ")", JudoLogger.LogLevel.VERBOSE);
-        requestNames.remove(request.getName());
+        if (inFlightRequests.remove(request.getId()) == null) {
+            return;
+        }
+        final int count = inFlightCount.decrementAndGet();
+        getInFlightMethodCount(request.getName()).decrementAndGet();
+        if ((debugFlags & THREAD_DEBUG) > 0) {
+            JudoLogger.log("Remove request(" + request.getName() + ":" + request.getId() + ")", JudoLogger.LogLevel.VERBOSE);
+        }
         if (onRequestEventListener != null) {
             handler.post(new Runnable() {
                 @Override
                 public void run() {
-                    onRequestEventListener.onStop(request, requestIds.size());
+                    onRequestEventListener.onStop(request, count);
                 }
             });
         }
     }
 
+    private AtomicInteger getInFlightMethodCount(String methodName) {
+        AtomicInteger count = inFlightMethodCounts.get(methodName);
+        if (count == null) {
+            AtomicInteger newCount = new AtomicInteger();
+            count = inFlightMethodCounts.putIfAbsent(methodName, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        return count;
+    }
+
     @Override
     public void setOnRequestEventListener(OnRequestEventListener onRequestEventListener) {
         this.onRequestEventListener = onRequestEventListener;
@@ -430,11 +573,31 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
     }
 
     public void setMemoryCache(MemoryCache memoryCache) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            if (memoryCacheCallbacks != null) {
+                context.getApplicationContext().unregisterComponentCallbacks(memoryCacheCallbacks);
+            }
+            memoryCacheCallbacks = createMemoryCacheCallbacks(memoryCache);
+            if (memoryCacheCallbacks != null) {
+                context.getApplicationContext().registerComponentCallbacks(memoryCacheCallbacks);
+            }
+        }
+        memoryCache.setCacheStats(cacheStats);
         this.memoryCache = memoryCache;
     }
 
+    private static ComponentCallbacks createMemoryCacheCallbacks(MemoryCache memoryCache) {
+        if (memoryCache instanceof ComponentCallbacks) {
+            return (ComponentCallbacks) memoryCache;
+        } else if (memoryCache instanceof ConcurrentMemoryCache) {
+            return new MemoryTrimCallbacks((ConcurrentMemoryCache) memoryCache);
+        }
+        return null;
+    }
+
     @Override
     public void setDiskCache(DiskCache diskCache) {
+        diskCache.setCacheStats(cacheStats);
         this.diskCache = diskCache;
     }
 
@@ -452,6 +615,28 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
         getDiskCache().clearCache();
     }
 
+    @Override
+    public void clearCacheByTag(String name, Object value) {
+        String tag = CacheTags.tag(name, value);
+        getMemoryCache().clearCacheByTag(tag);
+        getDiskCache().clearCacheByTag(tag);
+    }
+
+    @Override
+    public void clearCacheByTagPrefix(String prefix) {
+        getMemoryCache().clearCacheByTagPrefix(prefix);
+        getDiskCache().clearCacheByTagPrefix(prefix);
+    }
+
+    @Override
+    public Future<?> warmUpCache(Class<?> apiInterface, long maxBytes) {
+        FutureTask<Void> task = new FutureTask<>(new CacheWarmUp(this, apiInterface, maxBytes), null);
+        Thread thread = new Thread(task, "JudoNetworking CacheWarmUp");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
     @Override
     public void setPercentLoss(float percentLoss) {
         this.percentLoss = percentLoss;
@@ -486,12 +671,6 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
         return timeProfiler;
     }
 
-    public static void checkThread() throws CancelException {
-        if (Thread.currentThread().isInterrupted()) {
-            throw new CancelException();
-        }
-    }
-
     @SuppressWarnings("unchecked")
     public Map<String, MethodStat> getStats() {
         if (stats == null) {
@@ -536,7 +715,7 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
         }
     }
 
-    CacheMode getCacheMode() {
+    public CacheMode getCacheMode() {
         return cacheMode;
     }
 
@@ -573,6 +752,58 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
         return percentLoss;
     }
 
+    /**
+     * @return True if request was attached to equal request which is already in progress.
+     */
+    public boolean coalesceRequest(RequestImpl request) {
+        if (request.getCoalesceCall() == null) {
+            return false;
+        }
+        CacheKey key = new CacheKey(request.getMethodId(), request.getArgs());
+        request.setCoalesceKey(key);
+        synchronized (coalescedRequests) {
+            RequestImpl leader = coalescedRequests.get(key);
+            if (leader != null && leader.addFollower(request)) {
+                if ((getDebugFlags() & REQUEST_LINE_DEBUG) > 0) {
+                    JudoLogger.log("Request " + request.getName() + " attached to request in progress.", JudoLogger.LogLevel.DEBUG);
+                }
+                request.invokeStart(new CacheInfo(false, 0L));
+                return true;
+            }
+            coalescedRequests.put(key, request);
+            return false;
+        }
+    }
+
+    public void removeCoalescedRequest(RequestImpl request) {
+        synchronized (coalescedRequests) {
+            if (coalescedRequests.get(request.getCoalesceKey()) == request) {
+                coalescedRequests.remove(request.getCoalesceKey());
+            }
+        }
+    }
+
+    public void promoteCoalescedRequests(List<RequestImpl> requests) {
+        RequestImpl leader = null;
+        for (RequestImpl request : requests) {
+            if (request.isCancelled()) {
+                continue;
+            }
+            if (leader == null) {
+                leader = request;
+            } else {
+                leader.addFollower(request);
+            }
+        }
+        if (leader != null) {
+            synchronized (coalescedRequests) {
+                coalescedRequests.put(leader.getCoalesceKey(), leader);
+            }
+            Future<?> future = executorService.submit(leader);
+            leader.setFuture(future);
+        }
+    }
+
     public Map<Integer, RequestImpl> getSingleCallMethods() {
         return singleCallMethods;
     }
@@ -585,6 +816,21 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
         executorService.setThreadPriority(threadPriority);
     }
 
+    @Override
+    public int getNetworkLanes() {
+        return executorService.getNetworkLanes();
+    }
+
+    @Override
+    public void setNetworkLanes(int networkLanes) {
+        executorService.setNetworkLanes(networkLanes);
+    }
+
+    @Override
+    public ExecutorStat getExecutorStat() {
+        return executorService.getStat();
+    }
+
     public void setUrlModifier(UrlModifier urlModifier) {
         this.urlModifier = urlModifier;
     }
@@ -642,4 +888,18 @@ public class EndpointImpl implements Endpoint, EndpointClassic {
     public Map<String, MethodStat> getTimeProfilerStats() {
         return stats;
     }
+
+    @Override
+    public Map<String, CacheStat> getCacheStats() {
+        return cacheStats.getSnapshot();
+    }
+
+    @Override
+    public void clearCacheStats() {
+        cacheStats.clear();
+    }
+
+    public CacheStats getCacheStatsRecorder() {
+        return cacheStats;
+    }
 }
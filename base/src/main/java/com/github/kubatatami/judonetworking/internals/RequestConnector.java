@@ -10,11 +10,16 @@ import com.github.kubatatami.judonetworking.Endpoint;
 import com.github.kubatatami.judonetworking.Request;
 import com.github.kubatatami.judonetworking.annotations.Base64Param;
 import com.github.kubatatami.judonetworking.annotations.LocalCache;
+import com.github.kubatatami.judonetworking.caches.CacheEntryOutputStream;
 import com.github.kubatatami.judonetworking.controllers.ProtocolController;
 import com.github.kubatatami.judonetworking.exceptions.CancelException;
 import com.github.kubatatami.judonetworking.exceptions.ConnectionException;
+import com.github.kubatatami.judonetworking.exceptions.DeadlineExceededException;
+import com.github.kubatatami.judonetworking.exceptions.HttpException;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
+import com.github.kubatatami.judonetworking.exceptions.NotModifiedException;
 import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.executors.FanOut;
 import com.github.kubatatami.judonetworking.internals.requests.RequestImpl;
 import com.github.kubatatami.judonetworking.internals.results.CacheResult;
 import com.github.kubatatami.judonetworking.internals.results.ErrorResult;
@@ -22,10 +27,13 @@ import com.github.kubatatami.judonetworking.internals.results.RequestResult;
 import com.github.kubatatami.judonetworking.internals.results.RequestSuccessResult;
 import com.github.kubatatami.judonetworking.internals.stats.MethodStat;
 import com.github.kubatatami.judonetworking.internals.stats.TimeStat;
+import com.github.kubatatami.judonetworking.internals.streams.ByteBufferInputStream;
 import com.github.kubatatami.judonetworking.internals.streams.RequestInputStream;
+import com.github.kubatatami.judonetworking.internals.streams.TeeInputStream;
 import com.github.kubatatami.judonetworking.internals.virtuals.VirtualCallback;
 import com.github.kubatatami.judonetworking.internals.virtuals.VirtualServerInfo;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
+import com.github.kubatatami.judonetworking.transports.ConcurrencyLimiter;
 import com.github.kubatatami.judonetworking.transports.TransportLayer;
 import com.github.kubatatami.judonetworking.utils.FileUtils;
 
@@ -33,9 +41,11 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 public class RequestConnector {
@@ -55,52 +65,238 @@ public class RequestConnector {
         JudoLogger.longLog(tag, message, level);
     }
 
-    private RequestResult sendRequest(RequestImpl request, TimeStat timeStat) {
+    private RequestResult sendRequest(RequestImpl request, TimeStat timeStat, CacheResult staleCacheObject) {
         TransportLayer.Connection conn = null;
+        CancelRegistry.Registration registration = null;
+        ConcurrencyLimiter.Permit permit = null;
+        long sendTime = 0;
         try {
-            RequestResult result;
-            ProtocolController controller = rpc.getProtocolController();
-            result = handleVirtualServerRequest(request, timeStat);
+            RequestResult result = handleVirtualServerRequest(request, timeStat);
             if (result == null) {
-                ProtocolController.RequestInfo requestInfo = controller.createRequest(
-                        request.getCustomUrl() == null ? rpc.getUrl() : request.getCustomUrl(),
-                        request);
-                timeStat.tickCreateTime();
-                throwErrorOnMonkey(request);
-                lossCheck();
-                EndpointImpl.checkThread();
-                delay(request.getDelay());
-                EndpointImpl.checkThread();
-                conn = transportLayer.send(request.getName(), controller, requestInfo, request.getTimeout(), timeStat,
+                ProtocolController.RequestInfo requestInfo = prepareRequest(request, timeStat, staleCacheObject);
+                registration = requestInfo.cancelRegistration;
+                permit = acquirePermit(requestInfo, request.getTimeout());
+                sendTime = System.currentTimeMillis();
+                conn = transportLayer.send(request.getName(), rpc.getProtocolController(), requestInfo, request.getTimeout(), timeStat,
                         rpc.getDebugFlags(), request.getMethod());
-                EndpointImpl.checkThread();
-
-                InputStream connectionStream = conn.getStream();
-                if ((rpc.getDebugFlags() & Endpoint.RESPONSE_DEBUG) > 0) {
-                    String resStr = FileUtils.convertStreamToString(conn.getStream());
-                    longLog("Response body(" + request.getName() + ", " + resStr.length() + " Bytes)", resStr, JudoLogger.LogLevel.INFO);
-                    connectionStream = new ByteArrayInputStream(resStr.getBytes());
-                }
-                RequestInputStream stream = new RequestInputStream(connectionStream, timeStat, conn.getContentLength());
-                EndpointImpl.checkThread();
-                request.setHeaders(conn.getHeaders());
-                result = controller.parseResponse(request, stream, conn.getHeaders());
-                EndpointImpl.checkThread();
-                try {
-                    stream.close();
-                } catch (Exception ignored) {
-                }
-                timeStat.tickParseTime();
+                releasePermit(permit, sendTime, null);
+                permit = null;
+                result = readResponse(request, conn, timeStat);
             }
             return result;
         } catch (JudoException e) {
+            releasePermit(permit, sendTime, e);
             return new ErrorResult(request.getId(), e);
         } catch (Exception e) {
+            releasePermit(permit, sendTime, e);
             return new ErrorResult(request.getId(), new JudoException(e));
         } finally {
             if (conn != null) {
                 conn.close();
             }
+            if (registration != null) {
+                rpc.getCancelRegistry().unregister(request, registration);
+            }
+        }
+    }
+
+    private void sendRequestAsync(final RequestImpl request, final TimeStat timeStat, CacheResult staleCacheObject,
+                                  final RequestResultListener listener) {
+        try {
+            RequestResult result = handleVirtualServerRequest(request, timeStat);
+            if (result != null) {
+                listener.onResult(result);
+                return;
+            }
+            ProtocolController.RequestInfo requestInfo = prepareRequest(request, timeStat, staleCacheObject);
+            final CancelRegistry.Registration registration = requestInfo.cancelRegistration;
+            final ConcurrencyLimiter.Permit permit;
+            try {
+                permit = acquirePermit(requestInfo, request.getTimeout());
+            } catch (JudoException e) {
+                rpc.getCancelRegistry().unregister(request, registration);
+                throw e;
+            }
+            final long sendTime = System.currentTimeMillis();
+            transportLayer.sendAsync(request.getName(), rpc.getProtocolController(), requestInfo, request.getTimeout(), timeStat,
+                    rpc.getDebugFlags(), request.getMethod(), new TransportLayer.ConnectionCallback() {
+                        @Override
+                        public void onConnection(TransportLayer.Connection connection) {
+                            releasePermit(permit, sendTime, null);
+                            RequestResult result;
+                            try {
+                                result = readResponse(request, connection, timeStat);
+                            } catch (JudoException e) {
+                                result = new ErrorResult(request.getId(), e);
+                            } catch (Exception e) {
+                                result = new ErrorResult(request.getId(), new JudoException(e));
+                            } finally {
+                                connection.close();
+                                rpc.getCancelRegistry().unregister(request, registration);
+                            }
+                            listener.onResult(result);
+                        }
+
+                        @Override
+                        public void onError(JudoException e) {
+                            releasePermit(permit, sendTime, e);
+                            rpc.getCancelRegistry().unregister(request, registration);
+                            listener.onResult(new ErrorResult(request.getId(), e));
+                        }
+                    });
+        } catch (JudoException e) {
+            listener.onResult(new ErrorResult(request.getId(), e));
+        } catch (Exception e) {
+            listener.onResult(new ErrorResult(request.getId(), new JudoException(e)));
+        }
+    }
+
+    private ProtocolController.RequestInfo prepareRequest(RequestImpl request, TimeStat timeStat, CacheResult staleCacheObject) throws JudoException {
+        checkDeadline(request);
+        ProtocolController.RequestInfo requestInfo = rpc.getProtocolController().createRequest(
+                request.getCustomUrl() == null ? rpc.getUrl() : request.getCustomUrl(),
+                request);
+        requestInfo.deadline = request.getDeadline();
+        addConditionalHeaders(requestInfo, staleCacheObject);
+        timeStat.tickCreateTime();
+        throwErrorOnMonkey(request);
+        lossCheck();
+        checkCancelled(request);
+        delay(request.getDelay());
+        checkCancelled(request);
+        requestInfo.cancelRegistration = rpc.getCancelRegistry().register(request);
+        return requestInfo;
+    }
+
+    private RequestResult readResponse(RequestImpl request, TransportLayer.Connection conn, TimeStat timeStat) throws Exception {
+        if (request.isCancelled()) {
+            throw new CancelException(request.getName());
+        }
+        InputStream connectionStream = conn.getStream();
+        if ((rpc.getDebugFlags() & Endpoint.RESPONSE_DEBUG) > 0) {
+            String resStr = FileUtils.convertStreamToString(conn.getStream());
+            longLog("Response body(" + request.getName() + ", " + resStr.length() + " Bytes)", resStr, JudoLogger.LogLevel.INFO);
+            connectionStream = new ByteArrayInputStream(resStr.getBytes());
+        }
+        CacheEntryOutputStream rawBodyStream = openRawBodyStream(request, conn.getHeaders());
+        TeeInputStream teeStream = null;
+        if (rawBodyStream != null) {
+            connectionStream = teeStream = new TeeInputStream(connectionStream, rawBodyStream);
+        }
+        try {
+            RequestInputStream stream = new RequestInputStream(connectionStream, timeStat, conn.getContentLength());
+            checkCancelled(request);
+            request.setHeaders(conn.getHeaders());
+            RequestResult result = rpc.getProtocolController().parseResponse(request, stream, conn.getHeaders());
+            checkCancelled(request);
+            if (teeStream != null && result.error == null) {
+                teeStream.drain();
+                if (!teeStream.isFailed()) {
+                    rawBodyStream.commit();
+                }
+            }
+            try {
+                stream.close();
+            } catch (Exception ignored) {
+            }
+            timeStat.tickParseTime();
+            return result;
+        } finally {
+            if (rawBodyStream != null) {
+                rawBodyStream.close();
+            }
+        }
+    }
+
+    private CacheEntryOutputStream openRawBodyStream(RequestImpl request, Map<String, List<String>> headers) {
+        if (rpc.isCacheEnabled() && request.isLocalCacheable() && request.isLocalCacheRawBody()
+                && request.getLocalCacheLevel() != LocalCache.CacheLevel.MEMORY_ONLY) {
+            return rpc.getDiskCache().putRawBody(getCacheMethod(request), request.getDiskCacheKey(), request.getLocalCacheSize(), headers);
+        }
+        return null;
+    }
+
+    private CacheResult loadRawBody(RequestImpl request, CacheMethod cacheMethod, int lifeTime) {
+        CacheResult cacheResult = rpc.getDiskCache().getRawBody(cacheMethod, request.getDiskCacheKey(), lifeTime);
+        if (cacheResult.result) {
+            InputStream stream = new ByteBufferInputStream((ByteBuffer) cacheResult.object);
+            RequestResult result = rpc.getProtocolController().parseResponse(request, stream, cacheResult.headers);
+            if (result.error == null) {
+                cacheResult.object = result.result;
+                if ((rpc.getDebugFlags() & Endpoint.CACHE_DEBUG) > 0) {
+                    JudoLogger.log("Cache(" + cacheMethod + "): Parsed raw body from disk cache.", JudoLogger.LogLevel.DEBUG);
+                }
+                return cacheResult;
+            }
+            JudoLogger.log(result.error);
+        }
+        return new CacheResult();
+    }
+
+    private CacheMethod getCacheMethod(RequestImpl request) {
+        return new CacheMethod(CacheMethod.getMethodId(request.getMethod()), request.getName(), request.getMethod().getDeclaringClass().getSimpleName(),
+                rpc.getUrl(), request.getLocalCacheLevel(), request.getReturnType());
+    }
+
+    private ConcurrencyLimiter.Permit acquirePermit(ProtocolController.RequestInfo requestInfo, Integer timeout) throws JudoException {
+        ConcurrencyLimiter limiter = rpc.getConcurrencyLimiter();
+        if (limiter == null) {
+            return null;
+        }
+        long maxWait = timeout != null && timeout > 0 ? timeout : getMethodTimeout();
+        if (requestInfo.deadline > 0) {
+            maxWait = Math.min(maxWait, requestInfo.deadline - System.currentTimeMillis());
+        }
+        return limiter.acquire(getHost(requestInfo.url), maxWait);
+    }
+
+    /**
+     * @param sendTime Time taken right before handing request to transport layer, so round trip time
+     *                 doesn't include delays and waiting for permit.
+     */
+    private static void releasePermit(ConcurrencyLimiter.Permit permit, long sendTime, Exception e) {
+        if (permit == null) {
+            return;
+        }
+        long roundTripTime = System.currentTimeMillis() - sendTime;
+        if (e == null) {
+            permit.onSuccess(roundTripTime);
+        } else if (e instanceof CancelException) {
+            permit.onIgnore();
+        } else if (e instanceof HttpException && ((HttpException) e).getCode() < 500) {
+            permit.onSuccess(roundTripTime);
+        } else if (e instanceof ConnectionException) {
+            permit.onDropped();
+        } else {
+            permit.onIgnore();
+        }
+    }
+
+    static String getHost(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        return url.substring(start, end);
+    }
+
+    private static void checkDeadline(RequestImpl request) throws DeadlineExceededException {
+        if (request.isDeadlineExceeded()) {
+            throw new DeadlineExceededException(request.getName() + ": request deadline exceeded");
+        }
+    }
+
+    private static void checkCancelled(RequestImpl request) throws CancelException {
+        if (request.isCancelled()) {
+            throw new CancelException(request.getName());
+        }
+    }
+
+    private static void checkCancelled(CancelRegistry.Registration registration, String requestsName) throws CancelException {
+        if (registration.isCancelled()) {
+            throw new CancelException(requestsName);
         }
     }
 
@@ -192,99 +388,283 @@ public class RequestConnector {
         }
     }
 
-    @SuppressWarnings("unchecked")
     public Object call(RequestImpl request) throws JudoException {
         try {
-
-            CacheResult localCacheObject = null;
             TimeStat timeStat = new TimeStat(request);
+            CacheResult localCacheObject = loadFromCache(request);
+            if (isCacheHit(request, localCacheObject)) {
+                return returnFromCache(request, localCacheObject, timeStat);
+            }
+            if (isStaleHit(request, localCacheObject)) {
+                Object cacheObject = returnFromCache(request, localCacheObject, timeStat);
+                refreshInBackground(request, localCacheObject);
+                return cacheObject;
+            }
+            findAndCreateBase64(request);
+            request.invokeStart(new CacheInfo(false, 0L));
+            RequestResult result = sendRequest(request, timeStat, localCacheObject);
+            return handleResult(request, result, localCacheObject, timeStat);
+        } catch (JudoException e) {
+            refreshErrorStat(request);
+            throw e;
+        }
+    }
 
+    /**
+     * @return true if requests can be sent by {@link #callAsync} without blocking the worker thread
+     */
+    public boolean isAsyncSupported() {
+        return transportLayer.isAsyncSupported();
+    }
 
-            if ((rpc.isCacheEnabled() && request.isLocalCacheable())) {
-                LocalCache.CacheLevel cacheLevel = request.getLocalCacheLevel();
-                localCacheObject = rpc.getMemoryCache().get(request.getMethodId(), request.getArgs(), request.getLocalCacheLifeTime(), request.getLocalCacheSize());
-                if (localCacheObject.result) {
-                    if (request.getLocalCacheOnlyOnErrorMode().equals(LocalCache.OnlyOnError.NO)) {
-                        request.invokeStart(new CacheInfo(true, localCacheObject.time));
-                        request.setHeaders(localCacheObject.headers);
-                        timeStat.tickCacheTime();
-                        if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
-                            localCacheObject.object = rpc.getClonner().clone(localCacheObject.object);
-                        }
-                        return localCacheObject.object;
-                    }
-                } else if (cacheLevel != LocalCache.CacheLevel.MEMORY_ONLY) {
-                    CacheMethod cacheMethod = new CacheMethod(CacheMethod.getMethodId(request.getMethod()), request.getName(), request.getMethod().getDeclaringClass().getSimpleName(), rpc.getUrl(), cacheLevel);
-                    localCacheObject = rpc.getDiskCache().get(cacheMethod, Arrays.deepToString(request.getArgs()), request.getLocalCacheLifeTime());
-                    if (localCacheObject.result) {
-                        rpc.getMemoryCache().put(request.getMethodId(),
-                                request.getArgs(),
-                                localCacheObject.object,
-                                request.getLocalCacheSize(),
-                                localCacheObject.headers);
-                        if (request.getLocalCacheOnlyOnErrorMode().equals(LocalCache.OnlyOnError.NO)) {
-                            request.invokeStart(new CacheInfo(true, localCacheObject.time));
-                            request.setHeaders(localCacheObject.headers);
-                            timeStat.tickCacheTime();
-                            return localCacheObject.object;
+    public void callAsync(final RequestImpl request, final ResultListener listener) {
+        final TimeStat timeStat = new TimeStat(request);
+        final CacheResult localCacheObject;
+        Object cacheObject;
+        try {
+            localCacheObject = loadFromCache(request);
+            if (isCacheHit(request, localCacheObject)) {
+                cacheObject = returnFromCache(request, localCacheObject, timeStat);
+            } else if (isStaleHit(request, localCacheObject)) {
+                cacheObject = returnFromCache(request, localCacheObject, timeStat);
+                refreshInBackground(request, localCacheObject);
+            } else {
+                findAndCreateBase64(request);
+                request.invokeStart(new CacheInfo(false, 0L));
+                sendRequestAsync(request, timeStat, localCacheObject, new RequestResultListener() {
+                    @Override
+                    public void onResult(RequestResult result) {
+                        Object object;
+                        try {
+                            object = handleResult(request, result, localCacheObject, timeStat);
+                        } catch (JudoException e) {
+                            refreshErrorStat(request);
+                            listener.onError(e);
+                            return;
                         }
+                        listener.onSuccess(object);
                     }
+                });
+                return;
+            }
+        } catch (JudoException e) {
+            refreshErrorStat(request);
+            listener.onError(e);
+            return;
+        }
+        listener.onSuccess(cacheObject);
+    }
 
+    private CacheResult loadFromCache(RequestImpl request) throws JudoException {
+        CacheResult localCacheObject = null;
+        if ((rpc.isCacheEnabled() && request.isLocalCacheable())) {
+            LocalCache.CacheLevel cacheLevel = request.getLocalCacheLevel();
+            int lifeTime = request.getLocalCacheLifeTime();
+            boolean revalidate = (request.isLocalCacheRevalidate() || request.isLocalCacheStaleWhileRevalidate())
+                    && lifeTime != LocalCache.INFINITE;
+            int searchLifeTime = revalidate ? LocalCache.INFINITE : lifeTime;
+            long startNanos = System.nanoTime();
+            localCacheObject = rpc.getMemoryCache().get(request.getMethodId(), request.getArgs(), searchLifeTime, request.getLocalCacheSize());
+            if (localCacheObject.result) {
+                localCacheObject.stale = revalidate && isExpired(localCacheObject, lifeTime);
+            }
+            rpc.getCacheStatsRecorder().recordLookup(request.getMethodId(), request.getName(), LocalCache.CacheLevel.MEMORY_ONLY, localCacheObject, startNanos);
+            if (!localCacheObject.result && cacheLevel != LocalCache.CacheLevel.MEMORY_ONLY) {
+                CacheMethod cacheMethod = getCacheMethod(request);
+                startNanos = System.nanoTime();
+                if (request.isLocalCacheRawBody()) {
+                    localCacheObject = loadRawBody(request, cacheMethod, searchLifeTime);
+                } else {
+                    localCacheObject = rpc.getDiskCache().get(cacheMethod, request.getDiskCacheKey(), searchLifeTime);
+                }
+                if (localCacheObject.result) {
+                    localCacheObject.stale = revalidate && isExpired(localCacheObject, lifeTime);
+                }
+                rpc.getCacheStatsRecorder().recordLookup(request.getMethodId(), request.getName(), cacheLevel, localCacheObject, startNanos);
+                if (localCacheObject.result && !localCacheObject.stale) {
+                    rpc.getMemoryCache().put(request.getMethodId(),
+                            request.getArgs(),
+                            localCacheObject.object,
+                            request.getLocalCacheSize(),
+                            localCacheObject.headers,
+                            request.getCacheTags(),
+                            getCreateTime(localCacheObject));
                 }
             }
+        }
+        return localCacheObject;
+    }
 
+    /**
+     * @return Creation time of cache entry, entries promoted from disk cache keep their age in memory cache
+     */
+    static long getCreateTime(CacheResult cacheResult) {
+        return cacheResult.time != null ? cacheResult.time : System.currentTimeMillis();
+    }
 
-            findAndCreateBase64(request);
-            request.invokeStart(new CacheInfo(false, 0L));
-            RequestResult result = sendRequest(request, timeStat);
-
-            if (result instanceof ErrorResult) {
-                if (localCacheObject != null && localCacheObject.result) {
-                    LocalCache.OnlyOnError onlyOnErrorMode = request.getLocalCacheOnlyOnErrorMode();
-                    if (onlyOnErrorMode.equals(LocalCache.OnlyOnError.ON_ALL_ERROR) ||
-                            (onlyOnErrorMode.equals(LocalCache.OnlyOnError.ON_CONNECTION_ERROR) && result.error instanceof ConnectionException)) {
-                        timeStat.tickCacheTime();
-                        return localCacheObject.object;
+    private static boolean isExpired(CacheResult localCacheObject, int lifeTime) {
+        return localCacheObject.time != null && System.currentTimeMillis() - localCacheObject.time >= lifeTime;
+    }
+
+    private Object refreshCache(RequestImpl request, CacheResult localCacheObject, TimeStat timeStat) {
+        rpc.getMemoryCache().put(request.getMethodId(), request.getArgs(), localCacheObject.object, request.getLocalCacheSize(), localCacheObject.headers,
+                request.getCacheTags());
+        if (request.getLocalCacheLevel() != LocalCache.CacheLevel.MEMORY_ONLY) {
+            rpc.getDiskCache().refresh(getCacheMethod(request), request.getDiskCacheKey());
+        }
+        if ((rpc.getDebugFlags() & Endpoint.CACHE_DEBUG) > 0) {
+            JudoLogger.log("Cache(" + request.getName() + "): Not modified, cache entry refreshed.", JudoLogger.LogLevel.DEBUG);
+        }
+        request.setHeaders(localCacheObject.headers);
+        timeStat.tickCacheTime();
+        if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
+            return rpc.getClonner().clone(localCacheObject.object);
+        }
+        return localCacheObject.object;
+    }
+
+    private static void addConditionalHeaders(ProtocolController.RequestInfo requestInfo, CacheResult staleCacheObject) {
+        if (staleCacheObject == null || !staleCacheObject.stale || staleCacheObject.headers == null) {
+            return;
+        }
+        String etag = getHeader(staleCacheObject.headers, "ETag");
+        String lastModified = getHeader(staleCacheObject.headers, "Last-Modified");
+        if (etag == null && lastModified == null) {
+            return;
+        }
+        Map<String, String> customHeaders = new HashMap<>();
+        if (requestInfo.customHeaders != null) {
+            customHeaders.putAll(requestInfo.customHeaders);
+        }
+        if (etag != null) {
+            customHeaders.put("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            customHeaders.put("If-Modified-Since", lastModified);
+        }
+        requestInfo.customHeaders = customHeaders;
+    }
+
+    /**
+     * Response is unchanged only if it has the same ETag, or without ETag the same Last-Modified, as stale
+     * entry. Parsed models may not implement equals, so response without validators is treated as changed.
+     */
+    private static boolean isChanged(Map<String, List<String>> staleHeaders, Map<String, List<String>> headers) {
+        if (staleHeaders == null || headers == null) {
+            return true;
+        }
+        String etag = getHeader(headers, "ETag");
+        if (etag != null) {
+            return !etag.equals(getHeader(staleHeaders, "ETag"));
+        }
+        String lastModified = getHeader(headers, "Last-Modified");
+        return lastModified == null || !lastModified.equals(getHeader(staleHeaders, "Last-Modified"));
+    }
+
+    private static String getHeader(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private boolean isStaleHit(RequestImpl request, CacheResult localCacheObject) {
+        return localCacheObject != null && localCacheObject.result && localCacheObject.stale
+                && request.isLocalCacheStaleWhileRevalidate();
+    }
+
+    private void refreshInBackground(final RequestImpl request, final CacheResult staleCacheObject) {
+        rpc.getExecutorService().execute(new Runnable() {
+            @Override
+            public void run() {
+                TimeStat timeStat = new TimeStat();
+                findAndCreateBase64(request);
+                RequestResult result = sendRequest(request, timeStat, staleCacheObject);
+                try {
+                    if (result.error instanceof NotModifiedException) {
+                        refreshCache(request, staleCacheObject, timeStat);
+                        return;
+                    }
+                    boolean changed = result.error == null && isChanged(staleCacheObject.headers, request.getHeaders());
+                    Object object = handleResult(request, result, null, timeStat);
+                    if (changed) {
+                        request.invokeRefresh(object);
+                    }
+                } catch (JudoException e) {
+                    if ((rpc.getDebugFlags() & Endpoint.CACHE_DEBUG) > 0) {
+                        JudoLogger.log("Cache(" + request.getName() + "): Background refresh failed: " + e, JudoLogger.LogLevel.DEBUG);
                     }
                 }
             }
+        });
+    }
 
-            if (result.error != null) {
-                throw result.error;
+    private boolean isCacheHit(RequestImpl request, CacheResult localCacheObject) {
+        return localCacheObject != null && localCacheObject.result && !localCacheObject.stale
+                && request.getLocalCacheOnlyOnErrorMode().equals(LocalCache.OnlyOnError.NO);
+    }
+
+    private Object returnFromCache(RequestImpl request, CacheResult localCacheObject, TimeStat timeStat) {
+        request.invokeStart(new CacheInfo(true, localCacheObject.time, localCacheObject.stale));
+        request.setHeaders(localCacheObject.headers);
+        timeStat.tickCacheTime();
+        // cache result keeps instance owned by cache (stale one is put back on 304), disk hits are shared
+        // with memory cache and pending disk writes too, so caller gets a copy
+        if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
+            return rpc.getClonner().clone(localCacheObject.object);
+        }
+        return localCacheObject.object;
+    }
+
+    private Object handleResult(RequestImpl request, RequestResult result, CacheResult localCacheObject, TimeStat timeStat) throws JudoException {
+        if (result.error instanceof NotModifiedException && localCacheObject != null && localCacheObject.stale) {
+            return refreshCache(request, localCacheObject, timeStat);
+        }
+        if (result instanceof ErrorResult) {
+            if (localCacheObject != null && localCacheObject.result && !localCacheObject.stale) {
+                LocalCache.OnlyOnError onlyOnErrorMode = request.getLocalCacheOnlyOnErrorMode();
+                if (onlyOnErrorMode.equals(LocalCache.OnlyOnError.ON_ALL_ERROR) ||
+                        (onlyOnErrorMode.equals(LocalCache.OnlyOnError.ON_CONNECTION_ERROR) && result.error instanceof ConnectionException)) {
+                    timeStat.tickCacheTime();
+                    return localCacheObject.object;
+                }
             }
+        }
 
+        if (result.error != null) {
+            throw result.error;
+        }
 
-            timeStat.tickEndTime();
 
+        timeStat.tickEndTime();
 
-            if (rpc.isTimeProfiler()) {
-                refreshStat(request.getName(),
-                        timeStat.getMethodTime(),
-                        timeStat.getAllTime()
-                );
-            }
 
-            if ((rpc.getDebugFlags() & Endpoint.TIME_DEBUG) > 0) {
-                timeStat.logTime("End single request(" + request.getName() + "):");
-            }
+        if (rpc.isTimeProfiler()) {
+            refreshStat(request.getName(),
+                    timeStat.getMethodTime(),
+                    timeStat.getAllTime()
+            );
+        }
 
-            if ((rpc.isCacheEnabled() && request.isLocalCacheable())) {
-                rpc.getMemoryCache().put(request.getMethodId(), request.getArgs(), result.result, request.getLocalCacheSize(), request.getHeaders());
-                if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
-                    result.result = rpc.getClonner().clone(result.result);
-                }
-                LocalCache.CacheLevel cacheLevel = request.getLocalCacheLevel();
-                if (cacheLevel != LocalCache.CacheLevel.MEMORY_ONLY) {
+        if ((rpc.getDebugFlags() & Endpoint.TIME_DEBUG) > 0) {
+            timeStat.logTime("End single request(" + request.getName() + "):");
+        }
 
-                    CacheMethod cacheMethod = new CacheMethod(CacheMethod.getMethodId(request.getMethod()), request.getName(), request.getMethod().getDeclaringClass().getSimpleName(), rpc.getUrl(), cacheLevel);
-                    rpc.getDiskCache().put(cacheMethod, Arrays.deepToString(request.getArgs()), result.result, request.getLocalCacheSize(), request.getHeaders());
-                }
+        if ((rpc.isCacheEnabled() && request.isLocalCacheable())) {
+            Object cachedObject = result.result;
+            rpc.getMemoryCache().put(request.getMethodId(), request.getArgs(), cachedObject, request.getLocalCacheSize(), request.getHeaders(),
+                    request.getCacheTags());
+            if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
+                result.result = rpc.getClonner().clone(result.result);
+            }
+            LocalCache.CacheLevel cacheLevel = request.getLocalCacheLevel();
+            if (cacheLevel != LocalCache.CacheLevel.MEMORY_ONLY && !request.isLocalCacheRawBody()) {
+                rpc.getDiskCache().put(getCacheMethod(request), request.getDiskCacheKey(), cachedObject, request.getLocalCacheSize(), request.getHeaders());
             }
-            return result.result;
-        } catch (JudoException e) {
-            refreshErrorStat(request);
-            throw e;
         }
+        return result.result;
     }
 
     public List<RequestResult> callBatch(List<RequestImpl> requests, ProgressObserver progressObserver, Integer timeout) throws JudoException {
@@ -359,29 +739,19 @@ public class RequestConnector {
         return results;
     }
 
-    private void sendBatchAsNormalRequests(List<RequestImpl> requests, TimeStat timeStat, List<RequestResult> results) {
-        List<Thread> threads = new ArrayList<>();
+    private void sendBatchAsNormalRequests(List<RequestImpl> requests, final TimeStat timeStat, final List<RequestResult> results) {
+        List<FanOut.Job<RequestResult>> jobs = new ArrayList<>(requests.size());
         for (final RequestImpl request : requests) {
             if (!request.isCancelled()) {
-                threads.add(sendBatchAsNormalRequest(request, results, timeStat));
+                jobs.add(new BatchRequestJob(request, timeStat));
             }
         }
-        for (Thread thread : threads) {
-            try {
-                thread.join();
-            } catch (InterruptedException e) {
-                throw new JudoException(e);
-            }
-        }
-    }
-
-    private Thread sendBatchAsNormalRequest(final RequestImpl request, final List<RequestResult> results, final TimeStat timeStat) {
-        Thread thread = new Thread(new Runnable() {
+        FanOut<RequestResult> fanOut = new FanOut<>(rpc.getExecutorService(), rpc.getBatchConcurrency());
+        fanOut.execute(jobs, new FanOut.OnJobCompleteListener<RequestResult>() {
             @Override
-            public void run() {
-                RequestResult result = sendRequest(request, timeStat);
-                timeStat.tickEndTime();
-                if (rpc.isTimeProfiler()) {
+            public void onJobComplete(FanOut.Job<RequestResult> job, RequestResult result) {
+                RequestImpl request = ((BatchRequestJob) job).request;
+                if (rpc.isTimeProfiler() && !(result.error instanceof CancelException)) {
                     if (result.error != null) {
                         refreshErrorStat(request);
                     } else {
@@ -396,8 +766,35 @@ public class RequestConnector {
                 }
             }
         });
-        thread.start();
-        return thread;
+    }
+
+    private class BatchRequestJob implements FanOut.Job<RequestResult> {
+
+        private final RequestImpl request;
+
+        private final TimeStat timeStat;
+
+        BatchRequestJob(RequestImpl request, TimeStat timeStat) {
+            this.request = request;
+            this.timeStat = timeStat;
+        }
+
+        @Override
+        public RequestResult run() {
+            RequestResult result = sendRequest(request, timeStat, null);
+            timeStat.tickEndTime();
+            return result;
+        }
+
+        @Override
+        public RequestResult skip() {
+            return new ErrorResult(request.getId(), new CancelException("Batch aborted after fatal error."));
+        }
+
+        @Override
+        public boolean isFatal(RequestResult result) {
+            return result.error != null && request.isBatchFatal();
+        }
     }
 
     private void delay(int requestDelay) {
@@ -413,6 +810,9 @@ public class RequestConnector {
 
     public List<RequestResult> callRealBatch(List<RequestImpl> requests, ProgressObserver progressObserver, Integer timeout, String requestsName) throws JudoException {
         TransportLayer.Connection conn = null;
+        List<RequestImpl> registeredRequests = new ArrayList<>(requests);
+        CancelRegistry.Registration registration = rpc.getCancelRegistry().register(registeredRequests);
+        ConcurrencyLimiter.Permit permit;
         try {
 
             ProtocolController controller = rpc.getProtocolController();
@@ -420,18 +820,32 @@ public class RequestConnector {
             TimeStat timeStat = new TimeStat(progressObserver);
 
 
+            List<RequestResult> expiredResponses = removeExpiredRequests(requests);
+            if (requests.size() == 0) {
+                return expiredResponses;
+            }
             ProtocolController.RequestInfo requestInfo = controller.createRequests(rpc.getUrl(), (List) requests);
             timeStat.tickCreateTime();
+            requestInfo.cancelRegistration = registration;
+            requestInfo.deadline = getEarliestDeadline(requests);
             List<RequestResult> monkeyResponses = removeErrorOnMonkeyRequests(requests);
             lossCheck();
             int maxDelay = 0;
             for (RequestImpl request : requests) {
                 maxDelay = Math.max(maxDelay, request.getDelay());
             }
-            EndpointImpl.checkThread();
+            checkCancelled(registration, requestsName);
             delay(maxDelay);
-            conn = transportLayer.send(requestsName, controller, requestInfo, timeout, timeStat, rpc.getDebugFlags(), null);
-            EndpointImpl.checkThread();
+            permit = acquirePermit(requestInfo, timeout);
+            long sendTime = System.currentTimeMillis();
+            try {
+                conn = transportLayer.send(requestsName, controller, requestInfo, timeout, timeStat, rpc.getDebugFlags(), null);
+            } catch (JudoException e) {
+                releasePermit(permit, sendTime, e);
+                throw e;
+            }
+            releasePermit(permit, sendTime, null);
+            checkCancelled(registration, requestsName);
             InputStream connectionStream = conn.getStream();
             if ((rpc.getDebugFlags() & Endpoint.RESPONSE_DEBUG) > 0) {
 
@@ -439,14 +853,15 @@ public class RequestConnector {
                 longLog("Response body(" + requestsName + ", " + resStr.length() + " Bytes)", resStr, JudoLogger.LogLevel.INFO);
                 connectionStream = new ByteArrayInputStream(resStr.getBytes());
             }
-            EndpointImpl.checkThread();
+            checkCancelled(registration, requestsName);
             RequestInputStream stream = new RequestInputStream(connectionStream, timeStat, conn.getContentLength());
             for (RequestImpl request : requests) {
                 request.setHeaders(conn.getHeaders());
             }
             responses = controller.parseResponses((List) requests, stream, conn.getHeaders());
             responses.addAll(monkeyResponses);
-            EndpointImpl.checkThread();
+            responses.addAll(expiredResponses);
+            checkCancelled(registration, requestsName);
             timeStat.tickParseTime();
             timeStat.tickEndTime();
             calcTimeProfiler(requests, timeStat);
@@ -466,17 +881,41 @@ public class RequestConnector {
             if (conn != null) {
                 conn.close();
             }
+            rpc.getCancelRegistry().unregister(registeredRequests, registration);
         }
     }
 
+    private List<RequestResult> removeExpiredRequests(List<RequestImpl> requests) {
+        List<RequestResult> responses = new ArrayList<>();
+        for (int i = requests.size() - 1; i >= 0; i--) {
+            try {
+                checkDeadline(requests.get(i));
+            } catch (DeadlineExceededException ex) {
+                responses.add(new ErrorResult(requests.get(i).getId(), ex));
+                requests.remove(i);
+            }
+        }
+        return responses;
+    }
+
+    private static long getEarliestDeadline(List<RequestImpl> requests) {
+        long deadline = 0;
+        for (RequestImpl request : requests) {
+            if (request.getDeadline() > 0 && (deadline == 0 || request.getDeadline() < deadline)) {
+                deadline = request.getDeadline();
+            }
+        }
+        return deadline;
+    }
+
     private List<RequestResult> removeErrorOnMonkeyRequests(List<RequestImpl> requests) {
         List<RequestResult> responses = new ArrayList<>();
-        for (int i = requests.size(); i >= 0; i--) {
+        for (int i = requests.size() - 1; i >= 0; i--) {
             try {
                 throwErrorOnMonkey(requests.get(i));
             } catch (ConnectionException ex) {
-                requests.remove(i);
                 responses.add(new ErrorResult(requests.get(i).getId(), ex));
+                requests.remove(i);
             }
         }
         return responses;
@@ -548,6 +987,18 @@ public class RequestConnector {
         return transportLayer.getMethodTimeout();
     }
 
+    public interface ResultListener {
+
+        void onSuccess(Object result);
+
+        void onError(JudoException e);
+    }
+
+    private interface RequestResultListener {
+
+        void onResult(RequestResult result);
+    }
+
     public int randDelay(int minDelay, int maxDelay) {
         if (maxDelay == 0) {
             return 0;
@@ -18,7 +18,10 @@ import com.github.kubatatami.judonetworking.exceptions.ConnectionException;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
 import com.github.kubatatami.judonetworking.exceptions.ParseException;
 import com.github.kubatatami.judonetworking.internals.batches.BatchProgressObserver;
+import com.github.kubatatami.judonetworking.internals.batches.BatchTask;
 import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheLookup;
+import com.github.kubatatami.judonetworking.internals.executors.FanOut;
 import com.github.kubatatami.judonetworking.internals.requests.RequestImpl;
 import com.github.kubatatami.judonetworking.internals.results.CacheResult;
 import com.github.kubatatami.judonetworking.internals.results.ErrorResult;
@@ -35,7 +38,6 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -47,8 +49,6 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
 
     protected final EndpointImpl rpc;
 
-    protected int id = 0;
-
     protected boolean batchEnabled = false;
 
     protected boolean batchFatal = true;
@@ -74,29 +74,6 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
         batchEnabled = (mode == EndpointImpl.BatchMode.MANUAL);
     }
 
-    protected final Runnable batchRunnable = new Runnable() {
-        @Override
-        public void run() {
-            try {
-                Thread.sleep(rpc.getProtocolController().getAutoBatchTime());
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            if (batchRequests.size() == 1) {
-                RequestImpl request;
-                synchronized (batchRequests) {
-                    request = batchRequests.get(0);
-                    batchRequests.clear();
-                    batchEnabled = false;
-                }
-                Future<?> future = rpc.getExecutorService().submit(request);
-                request.setFuture(future);
-            } else {
-                callBatch();
-            }
-        }
-    };
-
     public void setBatchFatal(boolean batchFatal) {
         this.batchFatal = batchFatal;
     }
@@ -144,9 +121,7 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
                 return null;
             } else {
                 if (mode == EndpointImpl.BatchMode.AUTO) {
-                    batchRequests.add(request);
-                    batchEnabled = true;
-                    rpc.getExecutorService().execute(batchRunnable);
+                    rpc.getAutoBatcher().add(request);
                 } else {
                     Future<?> future = rpc.getExecutorService().submit(request);
                     request.setFuture(future);
@@ -205,6 +180,9 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
                         return request;
                     }
                     rpc.startRequest(request);
+                    if (mode != EndpointImpl.BatchMode.MANUAL && rpc.coalesceRequest(request)) {
+                        return request;
+                    }
                     performAsyncRequest(request);
                     return request;
                 }
@@ -262,8 +240,8 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
         return false;
     }
 
-    protected synchronized int getNextId() {
-        return ++id;
+    protected int getNextId() {
+        return rpc.getNextId();
     }
 
     @SuppressWarnings("unchecked")
@@ -326,10 +304,14 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
 
             Map<Integer, Pair<RequestImpl, Object>> cacheObjects = new HashMap<>();
             if (rpc.isCacheEnabled()) {
+                List<RequestImpl> diskRequests = new ArrayList<>();
+                List<DiskCacheLookup> diskLookups = new ArrayList<>();
                 for (int i = batches.size() - 1; i >= 0; i--) {
                     RequestImpl req = batches.get(i);
                     if (req.isLocalCacheable()) {
+                        long startNanos = System.nanoTime();
                         CacheResult result = rpc.getMemoryCache().get(req.getMethodId(), req.getArgs(), req.getLocalCacheLifeTime(), req.getLocalCacheSize());
+                        rpc.getCacheStatsRecorder().recordLookup(req.getMethodId(), req.getName(), LocalCache.CacheLevel.MEMORY_ONLY, result, startNanos);
                         LocalCache.CacheLevel cacheLevel = req.getLocalCacheLevel();
                         if (result.result) {
                             if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
@@ -343,28 +325,45 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
                             }
 
 
-                        } else if (cacheLevel != LocalCache.CacheLevel.MEMORY_ONLY) {
+                        } else if (cacheLevel != LocalCache.CacheLevel.MEMORY_ONLY && !req.isLocalCacheRawBody()) {
                             CacheMethod cacheMethod = new CacheMethod(CacheMethod.getMethodId(req.getMethod()),
-                                    req.getName(), req.getMethod().getDeclaringClass().getSimpleName(), rpc.getUrl(), cacheLevel);
-                            result = rpc.getDiskCache().get(cacheMethod, Arrays.deepToString(req.getArgs()), req.getLocalCacheLifeTime());
-                            if (result.result) {
-                                rpc.getMemoryCache().put(req.getMethodId(),
-                                        req.getArgs(),
-                                        result.object,
-                                        req.getLocalCacheSize(),
-                                        result.headers);
-                                cacheObjects.put(req.getId(), new Pair<>(req, result.object));
-                                if (req.getLocalCacheOnlyOnErrorMode().equals(LocalCache.OnlyOnError.NO)) {
-                                    batches.remove(i);
-                                    req.invokeStart(new CacheInfo(true, result.time));
-                                    req.setHeaders(result.headers);
-                                }
-                            }
-
+                                    req.getName(), req.getMethod().getDeclaringClass().getSimpleName(), rpc.getUrl(), cacheLevel,
+                                    req.getReturnType());
+                            diskRequests.add(req);
+                            diskLookups.add(new DiskCacheLookup(cacheMethod, req.getDiskCacheKey(), req.getLocalCacheLifeTime()));
                         }
                     }
 
                 }
+                if (!diskLookups.isEmpty()) {
+                    long startNanos = System.nanoTime();
+                    List<CacheResult> results = rpc.getDiskCache().getAll(diskLookups);
+                    // one bulk read serves all lookups, each records its share of the time
+                    long lookupNanos = (System.nanoTime() - startNanos) / results.size();
+                    for (int i = 0; i < results.size(); i++) {
+                        RequestImpl req = diskRequests.get(i);
+                        CacheResult result = results.get(i);
+                        rpc.getCacheStatsRecorder().recordLookupDuration(req.getMethodId(), req.getName(), req.getLocalCacheLevel(), result, lookupNanos);
+                        if (result.result) {
+                            rpc.getMemoryCache().put(req.getMethodId(),
+                                    req.getArgs(),
+                                    result.object,
+                                    req.getLocalCacheSize(),
+                                    result.headers,
+                                    req.getCacheTags(),
+                                    RequestConnector.getCreateTime(result));
+                            if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
+                                result.object = rpc.getClonner().clone(result.object);
+                            }
+                            cacheObjects.put(req.getId(), new Pair<>(req, result.object));
+                            if (req.getLocalCacheOnlyOnErrorMode().equals(LocalCache.OnlyOnError.NO)) {
+                                batches.remove(req);
+                                req.invokeStart(new CacheInfo(true, result.time));
+                                req.setHeaders(result.headers);
+                            }
+                        }
+                    }
+                }
             }
 
             BatchProgressObserver batchProgressObserver = new BatchProgressObserver(rpc, this, batches);
@@ -451,8 +450,7 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
 
         try {
             rpc.getHandler().post(new AsyncResultSender(new ArrayList<>(batches)));
-            progressObserver.setMaxProgress(TimeStat.TICKS);
-            responses.addAll(rpc.getRequestConnector().callBatch(batches, progressObserver, calculateTimeout(batches)));
+            responses.addAll(callBatchParts(batches, progressObserver));
             Collections.sort(responses);
             receiveResponse(batches, responses, cacheObjects);
         } catch (final JudoException e) {
@@ -464,6 +462,70 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
         }
     }
 
+    protected List<RequestResult> callBatchParts(List<RequestImpl> batches, BatchProgressObserver progressObserver) {
+        int partsNo = Math.min(rpc.getBatchSplitParts(), batches.size());
+        if (partsNo < 2 || !rpc.getProtocolController().isBatchSupported()) {
+            progressObserver.setMaxProgress(TimeStat.TICKS);
+            return rpc.getRequestConnector().callBatch(batches, progressObserver, calculateTimeout(batches));
+        }
+        List<FanOut.Job<List<RequestResult>>> jobs = new ArrayList<>(partsNo);
+        for (List<RequestImpl> part : BatchTask.timeAssignRequests(new ArrayList<>(batches), partsNo)) {
+            if (part.size() > 0) {
+                jobs.add(new BatchPartJob(new BatchTask(rpc, progressObserver, calculateTimeout(part), part), part));
+            }
+        }
+        progressObserver.setMaxProgress(TimeStat.TICKS * jobs.size());
+        final List<RequestResult> responses = new ArrayList<>(batches.size());
+        new FanOut<List<RequestResult>>(rpc.getExecutorService(), jobs.size()).execute(jobs, new FanOut.OnJobCompleteListener<List<RequestResult>>() {
+            @Override
+            public void onJobComplete(FanOut.Job<List<RequestResult>> job, List<RequestResult> result) {
+                synchronized (responses) {
+                    responses.addAll(result);
+                }
+            }
+        });
+        return responses;
+    }
+
+    protected static class BatchPartJob implements FanOut.Job<List<RequestResult>> {
+
+        private final BatchTask task;
+
+        private final List<RequestImpl> requests;
+
+        BatchPartJob(BatchTask task, List<RequestImpl> requests) {
+            this.task = task;
+            this.requests = new ArrayList<>(requests);
+        }
+
+        @Override
+        public List<RequestResult> run() {
+            task.run();
+            if (task.getEx() != null) {
+                return createErrorResults(task.getEx());
+            }
+            return task.getResponse();
+        }
+
+        @Override
+        public List<RequestResult> skip() {
+            return createErrorResults(new CancelException("Batch aborted."));
+        }
+
+        @Override
+        public boolean isFatal(List<RequestResult> result) {
+            return false;
+        }
+
+        private List<RequestResult> createErrorResults(JudoException e) {
+            List<RequestResult> results = new ArrayList<>(requests.size());
+            for (RequestImpl request : requests) {
+                results.add(new ErrorResult(request.getId(), e));
+            }
+            return results;
+        }
+    }
+
     protected void handleBatchResponse(List<RequestImpl> requests, Batch batch, List<RequestResult> responses) {
         Object[] results = new Object[requests.size()];
         JudoException ex = null;
@@ -514,16 +576,19 @@ public class RequestProxy implements InvocationHandler, AsyncResult {
                         if (!request.isVoidResult()) {
                             results[i] = response.result;
                             if ((rpc.isCacheEnabled() && request.isLocalCacheable())) {
-                                rpc.getMemoryCache().put(request.getMethodId(), request.getArgs(), results[i], request.getLocalCacheSize(), request.getHeaders());
+                                Object cachedObject = results[i];
+                                rpc.getMemoryCache().put(request.getMethodId(), request.getArgs(), cachedObject, request.getLocalCacheSize(), request.getHeaders(),
+                                        request.getCacheTags());
                                 if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
                                     results[i] = rpc.getClonner().clone(results[i]);
                                 }
                                 LocalCache.CacheLevel cacheLevel = request.getLocalCacheLevel();
 
-                                if (cacheLevel != LocalCache.CacheLevel.MEMORY_ONLY) {
+                                if (cacheLevel != LocalCache.CacheLevel.MEMORY_ONLY && !request.isLocalCacheRawBody()) {
                                     CacheMethod cacheMethod = new CacheMethod(CacheMethod.getMethodId(request.getMethod()),
-                                            request.getName(), request.getMethod().getDeclaringClass().getSimpleName(), rpc.getUrl(), cacheLevel);
-                                    rpc.getDiskCache().put(cacheMethod, Arrays.deepToString(request.getArgs()), results[i], request.getLocalCacheSize(), request.getHeaders());
+                                            request.getName(), request.getMethod().getDeclaringClass().getSimpleName(), rpc.getUrl(), cacheLevel,
+                                            request.getReturnType());
+                                    rpc.getDiskCache().put(cacheMethod, request.getDiskCacheKey(), cachedObject, request.getLocalCacheSize(), request.getHeaders());
                                 }
                             }
                         }
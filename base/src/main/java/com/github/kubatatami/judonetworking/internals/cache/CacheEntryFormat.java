@@ -0,0 +1,259 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+import com.github.kubatatami.judonetworking.caches.CacheCodec;
+import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+import com.github.kubatatami.judonetworking.internals.streams.ByteBufferInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout of disk cache entry: magic, version, length-prefixed header with canonical key, time, response headers,
+ * serialized call arguments and tags, followed by object encoded with {@link CacheCodec} or raw response body. Key stored in header is compared
+ * on read, so hash collision or stale file is treated as miss.
+ */
+public final class CacheEntryFormat {
+
+    private static final int MAGIC = 0x4A554443;
+
+    private static final int VERSION = 4;
+
+    private CacheEntryFormat() {
+    }
+
+    public static void write(OutputStream outputStream, DiskCacheKey key, CacheResult result, Type type, CacheCodec codec) throws IOException {
+        writeHeader(outputStream, key, result.time != null ? result.time : 0L, result.headers);
+        codec.write(outputStream, result.object, type);
+        outputStream.flush();
+    }
+
+    public static CacheResult read(InputStream inputStream, DiskCacheKey key, Type type, CacheCodec codec) throws IOException {
+        CacheResult result = readHeader(inputStream, key);
+        result.object = codec.read(inputStream, type);
+        return result;
+    }
+
+    public static void writeHeader(OutputStream outputStream, DiskCacheKey key, long time, Map<String, List<String>> headers) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        writeKey(header, key.getKey());
+        header.writeLong(time);
+        writeHeaders(header, headers);
+        writeArgs(header, key.getArgs());
+        writeTags(header, key.getTags());
+        header.flush();
+
+        DataOutputStream os = new DataOutputStream(outputStream);
+        os.writeInt(MAGIC);
+        os.writeByte(VERSION);
+        os.writeInt(headerBytes.size());
+        headerBytes.writeTo(os);
+        os.flush();
+    }
+
+    /**
+     * Reads entry header and leaves stream at the beginning of entry body.
+     */
+    public static CacheResult readHeader(InputStream inputStream, DiskCacheKey key) throws IOException {
+        DataInputStream header = openHeader(inputStream);
+        if (!key.getKey().equals(readKey(header))) {
+            throw new IOException("Cache entry key mismatch.");
+        }
+        long time = header.readLong();
+        return new CacheResult(null, true, time, readHeaders(header));
+    }
+
+    /**
+     * Reads entry together with stored call arguments, used when key of entry isn't known.
+     *
+     * @return Result with {@link CacheResult#args} or null when arguments weren't stored
+     */
+    public static CacheResult readWithArgs(InputStream inputStream, Type type, CacheCodec codec) throws IOException {
+        DataInputStream header = openHeader(inputStream);
+        String key = readKey(header);
+        long time = header.readLong();
+        CacheResult result = new CacheResult(null, true, time, readHeaders(header));
+        int argsLength = header.readInt();
+        if (argsLength < 0) {
+            return null;
+        }
+        byte[] argsBytes = new byte[argsLength];
+        header.readFully(argsBytes);
+        result.tags = readTags(header);
+        ObjectInputStream argsStream = new ObjectInputStream(new ByteArrayInputStream(argsBytes));
+        try {
+            result.args = (Object[]) argsStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        } finally {
+            argsStream.close();
+        }
+        if (!key.equals(DiskCacheKey.canonicalize(result.args))) {
+            throw new IOException("Cache entry arguments don't match key.");
+        }
+        result.object = codec.read(inputStream, type);
+        return result;
+    }
+
+    /**
+     * Reads only tags from entry header.
+     */
+    public static String[] readTags(InputStream inputStream) throws IOException {
+        DataInputStream header = openHeader(inputStream);
+        header.skipBytes(header.readInt());
+        header.readLong();
+        readHeaders(header);
+        int argsLength = header.readInt();
+        if (argsLength > 0) {
+            header.skipBytes(argsLength);
+        }
+        return readTags(header);
+    }
+
+    private static DataInputStream openHeader(InputStream inputStream) throws IOException {
+        DataInputStream is = new DataInputStream(inputStream);
+        if (is.readInt() != MAGIC || is.readUnsignedByte() != VERSION) {
+            throw new IOException("Unsupported cache entry format.");
+        }
+        byte[] headerBytes = new byte[is.readInt()];
+        is.readFully(headerBytes);
+        return new DataInputStream(new ByteArrayInputStream(headerBytes));
+    }
+
+    /**
+     * Maps entry file into memory and reads its header.
+     *
+     * @return Result with read-only buffer of entry body as object
+     */
+    public static CacheResult mapBody(File file, DiskCacheKey key) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CacheResult result = readHeader(new ByteBufferInputStream(buffer), key);
+            result.object = buffer.slice();
+            return result;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void writeArgs(DataOutputStream os, Object[] args) throws IOException {
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg != null && !(arg instanceof Serializable)) {
+                    os.writeInt(-1);
+                    return;
+                }
+            }
+        }
+        ByteArrayOutputStream argsBytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream argsStream = new ObjectOutputStream(argsBytes);
+            argsStream.writeObject(args);
+            argsStream.close();
+        } catch (NotSerializableException e) {
+            os.writeInt(-1);
+            return;
+        }
+        os.writeInt(argsBytes.size());
+        argsBytes.writeTo(os);
+    }
+
+    private static void writeTags(DataOutputStream os, String[] tags) throws IOException {
+        os.writeInt(tags != null ? tags.length : 0);
+        if (tags != null) {
+            for (String tag : tags) {
+                writeKey(os, tag);
+            }
+        }
+    }
+
+    private static String[] readTags(DataInputStream is) throws IOException {
+        String[] tags = new String[is.readInt()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = readKey(is);
+        }
+        return tags;
+    }
+
+    private static void writeKey(DataOutputStream os, String key) throws IOException {
+        byte[] bytes = key.getBytes("UTF-8");
+        os.writeInt(bytes.length);
+        os.write(bytes);
+    }
+
+    private static String readKey(DataInputStream is) throws IOException {
+        byte[] bytes = new byte[is.readInt()];
+        is.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeHeaders(DataOutputStream os, Map<String, List<String>> headers) throws IOException {
+        if (headers == null) {
+            os.writeInt(-1);
+            return;
+        }
+        os.writeInt(headers.size());
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            writeString(os, entry.getKey());
+            List<String> values = entry.getValue();
+            os.writeInt(values != null ? values.size() : -1);
+            if (values != null) {
+                for (String value : values) {
+                    writeString(os, value);
+                }
+            }
+        }
+    }
+
+    private static Map<String, List<String>> readHeaders(DataInputStream is) throws IOException {
+        int size = is.readInt();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, List<String>> headers = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = readString(is);
+            int count = is.readInt();
+            List<String> values = null;
+            if (count >= 0) {
+                values = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    values.add(readString(is));
+                }
+            }
+            headers.put(name, values);
+        }
+        return headers;
+    }
+
+    private static void writeString(DataOutputStream os, String value) throws IOException {
+        os.writeBoolean(value != null);
+        if (value != null) {
+            os.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream is) throws IOException {
+        return is.readBoolean() ? is.readUTF() : null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+import java.util.Arrays;
+
+/**
+ * Identity of method call: method id and deeply compared arguments.
+ */
+public final class CacheKey {
+
+    private final int methodId;
+
+    private final Object[] args;
+
+    private final int hash;
+
+    public CacheKey(int methodId, Object[] args) {
+        this.methodId = methodId;
+        this.args = args != null ? args.clone() : null;
+        this.hash = 31 * methodId + Arrays.deepHashCode(this.args);
+    }
+
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheKey)) {
+            return false;
+        }
+        CacheKey cacheKey = (CacheKey) o;
+        return methodId == cacheKey.methodId && hash == cacheKey.hash && Arrays.deepEquals(args, cacheKey.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return methodId + ":" + Arrays.deepToString(args);
+    }
+}
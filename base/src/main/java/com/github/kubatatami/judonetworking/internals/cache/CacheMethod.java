@@ -5,6 +5,7 @@ import com.github.kubatatami.judonetworking.annotations.RequestMethod;
 import com.github.kubatatami.judonetworking.utils.ReflectionCache;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 
 public class CacheMethod {
 
@@ -20,14 +21,20 @@ public class CacheMethod {
 
     private LocalCache.CacheLevel cacheLevel;
 
+    private Type returnType;
+
     public CacheMethod(int methodId, String methodName, String interfaceName, String url, LocalCache.CacheLevel level) {
+        this(methodId, methodName, interfaceName, url, level, null);
+    }
+
+    public CacheMethod(int methodId, String methodName, String interfaceName, String url, LocalCache.CacheLevel level, Type returnType) {
         this.methodId = methodId;
         this.methodName = methodName;
         this.interfaceName = interfaceName;
         this.url = url;
         this.time = System.currentTimeMillis();
         this.cacheLevel = level;
-
+        this.returnType = returnType;
     }
 
     public LocalCache.CacheLevel getCacheLevel() {
@@ -47,6 +54,10 @@ public class CacheMethod {
         return methodName;
     }
 
+    public Type getReturnType() {
+        return returnType;
+    }
+
     public Long getTime() {
         return time;
     }
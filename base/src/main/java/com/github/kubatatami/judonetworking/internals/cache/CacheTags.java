@@ -0,0 +1,55 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+import com.github.kubatatami.judonetworking.annotations.CacheTag;
+import com.github.kubatatami.judonetworking.utils.ReflectionCache;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds cache tags from arguments annotated with {@link CacheTag}. Strings, numbers, booleans,
+ * characters and enums are written as plain value, so {@code user:42} is the same tag for int and long
+ * argument. Other values use canonical form of {@link DiskCacheKey}.
+ */
+public final class CacheTags {
+
+    public static final String[] NONE = new String[0];
+
+    private CacheTags() {
+    }
+
+    public static String tag(String name, Object value) {
+        return name + ":" + toTagValue(value);
+    }
+
+    public static String[] fromArgs(Method method, Object[] args) {
+        if (args == null) {
+            return NONE;
+        }
+        Annotation[][] annotations = ReflectionCache.getParameterAnnotations(method);
+        List<String> tags = null;
+        for (int i = 0; i < args.length && i < annotations.length; i++) {
+            CacheTag cacheTag = ReflectionCache.findAnnotation(annotations[i], CacheTag.class);
+            if (cacheTag != null) {
+                if (tags == null) {
+                    tags = new ArrayList<>();
+                }
+                tags.add(tag(cacheTag.value(), args[i]));
+            }
+        }
+        return tags != null ? tags.toArray(new String[tags.size()]) : NONE;
+    }
+
+    private static String toTagValue(Object value) {
+        if (value == null || value instanceof CharSequence || value instanceof Number
+                || value instanceof Boolean || value instanceof Character) {
+            return String.valueOf(value);
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        } else {
+            return DiskCacheKey.canonicalize(new Object[]{value});
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+import com.github.kubatatami.judonetworking.utils.ReflectionCache;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Disk cache key of method arguments. Arguments are written in canonical form which doesn't depend
+ * on hash set/map iteration order, SHA-1 of that form names the entry. Fields of app model classes
+ * are written by reflection, platform and library types are written by their toString.
+ */
+public final class DiskCacheKey {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final Map<Class<?>, Field[]> fieldsCache = new ConcurrentHashMap<>();
+
+    private static final Comparator<String> STRING_COMPARATOR = new Comparator<String>() {
+        @Override
+        public int compare(String lhs, String rhs) {
+            return lhs.compareTo(rhs);
+        }
+    };
+
+    private final Object[] args;
+
+    private final String key;
+
+    private final String hash;
+
+    private final String[] tags;
+
+    public DiskCacheKey(Object[] args) {
+        this(args, CacheTags.NONE);
+    }
+
+    /**
+     * @param tags Tags of entry, they aren't part of key
+     */
+    public DiskCacheKey(Object[] args, String[] tags) {
+        this.args = args;
+        this.key = canonicalize(args);
+        this.hash = sha1(key);
+        this.tags = tags;
+    }
+
+    /**
+     * @return Arguments of call, stored in entry when serializable to allow cache warm-up
+     */
+    public Object[] getArgs() {
+        return args;
+    }
+
+    public String[] getTags() {
+        return tags;
+    }
+
+    /**
+     * @return Canonical form of arguments, stored in entry to verify hash hits
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return Hex SHA-1 of canonical form
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return Name of shard directory (first byte of hash)
+     */
+    public String getShard() {
+        return hash.substring(0, 2);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof DiskCacheKey && key.equals(((DiskCacheKey) o).key));
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return hash;
+    }
+
+    public static String canonicalize(Object[] args) {
+        StringBuilder builder = new StringBuilder();
+        append(builder, args, new IdentityHashMap<Object, Boolean>());
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, Object value, IdentityHashMap<Object, Boolean> visited) {
+        if (value == null) {
+            builder.append("null");
+        } else if (value instanceof CharSequence) {
+            builder.append('"');
+            String string = value.toString();
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if (c == '"' || c == '\\') {
+                    builder.append('\\');
+                }
+                builder.append(c);
+            }
+            builder.append('"');
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            builder.append(value.getClass().getSimpleName()).append('(').append(value).append(')');
+        } else if (value instanceof Enum) {
+            builder.append(((Enum<?>) value).getDeclaringClass().getName()).append('.').append(((Enum<?>) value).name());
+        } else if (value instanceof Class) {
+            builder.append("class ").append(((Class<?>) value).getName());
+        } else if (value instanceof Date) {
+            builder.append("Date(").append(((Date) value).getTime()).append(')');
+        } else if (visited.put(value, Boolean.TRUE) != null) {
+            builder.append("@cycle");
+        } else {
+            if (value.getClass().isArray()) {
+                builder.append('[');
+                for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                    if (i > 0) {
+                        builder.append(',');
+                    }
+                    append(builder, Array.get(value, i), visited);
+                }
+                builder.append(']');
+            } else if (value instanceof Set) {
+                appendSorted(builder, (Set<?>) value, visited);
+            } else if (value instanceof Collection) {
+                append(builder, ((Collection<?>) value).toArray(), visited);
+            } else if (value instanceof Map) {
+                appendMap(builder, (Map<?, ?>) value, visited);
+            } else if (ReflectionCache.isLibraryClass(value.getClass())) {
+                builder.append(value.getClass().getName()).append('(').append(value).append(')');
+            } else {
+                appendFields(builder, value, visited);
+            }
+            visited.remove(value);
+        }
+    }
+
+    private static void appendSorted(StringBuilder builder, Collection<?> values, IdentityHashMap<Object, Boolean> visited) {
+        List<String> elements = new ArrayList<>(values.size());
+        for (Object element : values) {
+            StringBuilder elementBuilder = new StringBuilder();
+            append(elementBuilder, element, visited);
+            elements.add(elementBuilder.toString());
+        }
+        Collections.sort(elements, STRING_COMPARATOR);
+        builder.append('{');
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(elements.get(i));
+        }
+        builder.append('}');
+    }
+
+    private static void appendMap(StringBuilder builder, Map<?, ?> map, IdentityHashMap<Object, Boolean> visited) {
+        List<String> entries = new ArrayList<>(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            StringBuilder entryBuilder = new StringBuilder();
+            append(entryBuilder, entry.getKey(), visited);
+            entryBuilder.append('=');
+            append(entryBuilder, entry.getValue(), visited);
+            entries.add(entryBuilder.toString());
+        }
+        Collections.sort(entries, STRING_COMPARATOR);
+        builder.append("Map{");
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(entries.get(i));
+        }
+        builder.append('}');
+    }
+
+    private static void appendFields(StringBuilder builder, Object value, IdentityHashMap<Object, Boolean> visited) {
+        builder.append(value.getClass().getName()).append('{');
+        Field[] fields = getFields(value.getClass());
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(fields[i].getName()).append('=');
+            try {
+                append(builder, fields[i].get(value), visited);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        builder.append('}');
+    }
+
+    private static Field[] getFields(Class<?> clazz) {
+        Field[] fields = fieldsCache.get(clazz);
+        if (fields == null) {
+            List<Field> list = new ArrayList<>();
+            for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        list.add(field);
+                    }
+                }
+            }
+            Collections.sort(list, new Comparator<Field>() {
+                @Override
+                public int compare(Field lhs, Field rhs) {
+                    int result = lhs.getName().compareTo(rhs.getName());
+                    return result != 0 ? result : lhs.getDeclaringClass().getName().compareTo(rhs.getDeclaringClass().getName());
+                }
+            });
+            fields = list.toArray(new Field[list.size()]);
+            fieldsCache.put(clazz, fields);
+        }
+        return fields;
+    }
+
+    private static String sha1(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+/**
+ * Single entry of bulk disk cache lookup.
+ */
+public class DiskCacheLookup {
+
+    private final CacheMethod method;
+
+    private final DiskCacheKey key;
+
+    private final int cacheLifeTime;
+
+    public DiskCacheLookup(CacheMethod method, DiskCacheKey key, int cacheLifeTime) {
+        this.method = method;
+        this.key = key;
+        this.cacheLifeTime = cacheLifeTime;
+    }
+
+    public CacheMethod getMethod() {
+        return method;
+    }
+
+    public DiskCacheKey getKey() {
+        return key;
+    }
+
+    public int getCacheLifeTime() {
+        return cacheLifeTime;
+    }
+}
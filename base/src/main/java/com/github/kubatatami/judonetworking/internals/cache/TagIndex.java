@@ -0,0 +1,114 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Secondary index of cache entries by tag. Tags are kept sorted, so both tag and tag prefix
+ * lookups cost O(log tags + affected entries).
+ *
+ * @param <K> Key of cache entry
+ */
+public class TagIndex<K> {
+
+    protected final TreeMap<String, Set<K>> keysByTag = new TreeMap<>();
+
+    protected final Map<K, String[]> tagsByKey = new HashMap<>();
+
+    protected volatile boolean empty = true;
+
+    /**
+     * Replaces tags of entry, empty tags only remove entry from index.
+     */
+    public synchronized void put(K key, String[] tags) {
+        remove(key);
+        if (tags == null || tags.length == 0) {
+            return;
+        }
+        tagsByKey.put(key, tags);
+        empty = false;
+        for (String tag : tags) {
+            Set<K> keys = keysByTag.get(tag);
+            if (keys == null) {
+                keys = new HashSet<>();
+                keysByTag.put(tag, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Cheap when index is empty, so it can be called for every removed cache entry.
+     */
+    public void remove(K key) {
+        if (!empty) {
+            removeKey(key);
+        }
+    }
+
+    protected synchronized void removeKey(K key) {
+        String[] tags = tagsByKey.remove(key);
+        if (tags != null) {
+            for (String tag : tags) {
+                Set<K> keys = keysByTag.get(tag);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByTag.remove(tag);
+                    }
+                }
+            }
+            empty = tagsByKey.isEmpty();
+        }
+    }
+
+    /**
+     * Removes entries with given tag from index.
+     *
+     * @return Keys of removed entries
+     */
+    public synchronized Set<K> removeTag(String tag) {
+        Set<K> keys = keysByTag.get(tag);
+        if (keys == null) {
+            return Collections.emptySet();
+        }
+        Set<K> result = new HashSet<>(keys);
+        for (K key : result) {
+            removeKey(key);
+        }
+        return result;
+    }
+
+    /**
+     * Removes entries with any tag starting with given prefix from index.
+     *
+     * @return Keys of removed entries
+     */
+    public synchronized Set<K> removeTagPrefix(String prefix) {
+        Set<K> result = new HashSet<>();
+        for (Map.Entry<String, Set<K>> entry : keysByTag.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        for (K key : result) {
+            removeKey(key);
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public synchronized void clear() {
+        keysByTag.clear();
+        tagsByKey.clear();
+        empty = true;
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.kubatatami.judonetworking.internals.executors;
+
+import com.github.kubatatami.judonetworking.exceptions.CancelException;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs jobs on executor with limited parallelism. Calling thread takes part in processing,
+ * so fan-out started from executor lane never waits for another free lane.
+ */
+public class FanOut<T> {
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    private final Queue<Job<T>> pending = new ConcurrentLinkedQueue<>();
+
+    private final Object lock = new Object();
+
+    private int remaining;
+
+    private volatile boolean aborted;
+
+    public FanOut(Executor executor, int parallelism) {
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void execute(List<? extends Job<T>> jobs, OnJobCompleteListener<T> listener) throws CancelException {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            remaining = jobs.size();
+        }
+        pending.addAll(jobs);
+        Worker worker = new Worker(listener);
+        int helpers = Math.min(parallelism, jobs.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            executor.execute(worker);
+        }
+        worker.run();
+        synchronized (lock) {
+            while (remaining > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    aborted = true;
+                    throw new CancelException("Fan-out interrupted");
+                }
+            }
+        }
+    }
+
+    public void abort() {
+        aborted = true;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    private class Worker implements Runnable {
+
+        private final OnJobCompleteListener<T> listener;
+
+        Worker(OnJobCompleteListener<T> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            Job<T> job;
+            while ((job = pending.poll()) != null) {
+                try {
+                    T result = aborted ? job.skip() : job.run();
+                    if (job.isFatal(result)) {
+                        aborted = true;
+                    }
+                    listener.onJobComplete(job, result);
+                } finally {
+                    synchronized (lock) {
+                        remaining--;
+                        if (remaining == 0) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public interface Job<T> {
+
+        T run();
+
+        /**
+         * @return Result used when job is not started because fan-out was aborted.
+         */
+        T skip();
+
+        boolean isFatal(T result);
+    }
+
+    public interface OnJobCompleteListener<T> {
+
+        void onJobComplete(Job<T> job, T result);
+    }
+}
@@ -4,19 +4,24 @@ import android.os.Build;
 import android.os.Process;
 
 import com.github.kubatatami.judonetworking.Endpoint;
+import com.github.kubatatami.judonetworking.internals.requests.RequestImpl;
+import com.github.kubatatami.judonetworking.internals.stats.ExecutorStat;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
 
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by Kuba on 19/05/14.
  */
 public class JudoExecutor extends ThreadPoolExecutor {
 
-    private static final int CORE_POOL_SIZE = 2;
+    public static final int DEFAULT_NETWORK_LANES = 8;
 
     protected int threadPriority = Process.THREAD_PRIORITY_BACKGROUND;
 
@@ -24,6 +29,14 @@ public class JudoExecutor extends ThreadPoolExecutor {
 
     protected int count;
 
+    protected final AtomicLong sequence = new AtomicLong();
+
+    protected final AtomicLong executedTasks = new AtomicLong();
+
+    protected final AtomicLong totalWaitTime = new AtomicLong();
+
+    protected volatile long maxWaitTime;
+
     protected ThreadFactory threadFactory = new ThreadFactory() {
         @Override
         public Thread newThread(final Runnable runnable) {
@@ -37,20 +50,34 @@ public class JudoExecutor extends ThreadPoolExecutor {
     };
 
     public JudoExecutor(Endpoint endpoint) {
-        super(CORE_POOL_SIZE, Integer.MAX_VALUE, 30, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+        this(endpoint, DEFAULT_NETWORK_LANES);
+    }
+
+    public JudoExecutor(Endpoint endpoint, int networkLanes) {
+        super(networkLanes, networkLanes, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>());
         this.endpoint = endpoint;
         setThreadFactory(threadFactory);
-        prestartAllCoreThreads();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
             allowCoreThreadTimeOut(true);
         }
     }
 
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new PriorityTask<>(runnable, value, sequence.getAndIncrement());
+    }
+
     @Override
     protected void beforeExecute(Thread t, Runnable r) {
         super.beforeExecute(t, r);
-        ConnectionThread connectionThread = (ConnectionThread) t;
-        connectionThread.resetCanceled();
+        if (r instanceof PrioritizedRunnable) {
+            long waitTime = System.currentTimeMillis() - ((PrioritizedRunnable) r).getPriority().enqueueTime;
+            totalWaitTime.addAndGet(waitTime);
+            executedTasks.incrementAndGet();
+            if (waitTime > maxWaitTime) {
+                maxWaitTime = waitTime;
+            }
+        }
         if ((endpoint.getDebugFlags() & Endpoint.THREAD_DEBUG) > 0) {
             JudoLogger.log("Before execute thread " + t.getName() + ":" + toString(), JudoLogger.LogLevel.VERBOSE);
         }
@@ -64,8 +91,15 @@ public class JudoExecutor extends ThreadPoolExecutor {
         }
     }
 
+    /**
+     * Runnables are queued without {@link FutureTask} wrapper, so their exceptions still reach
+     * {@link #afterExecute(Runnable, Throwable)} and uncaught exception handler.
+     */
     @Override
     public void execute(Runnable command) {
+        if (!(command instanceof PrioritizedRunnable)) {
+            command = new PriorityRunnable(command, sequence.getAndIncrement());
+        }
         super.execute(command);
         if ((endpoint.getDebugFlags() & Endpoint.THREAD_DEBUG) > 0) {
             JudoLogger.log("Execute runnable" + toString(), JudoLogger.LogLevel.VERBOSE);
@@ -96,62 +130,165 @@ public class JudoExecutor extends ThreadPoolExecutor {
         return threadPriority;
     }
 
+    public void setNetworkLanes(int networkLanes) {
+        if (networkLanes < 1) {
+            throw new IllegalArgumentException("Network lanes must be greater than 0.");
+        }
+        if (networkLanes > getMaximumPoolSize()) {
+            setMaximumPoolSize(networkLanes);
+            setCorePoolSize(networkLanes);
+        } else {
+            setCorePoolSize(networkLanes);
+            setMaximumPoolSize(networkLanes);
+        }
+    }
 
-    public static class ConnectionThread extends Thread {
+    public int getNetworkLanes() {
+        return getMaximumPoolSize();
+    }
 
-        Runnable runnable;
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
 
-        int threadPriority;
+    public long getAverageWaitTime() {
+        long executed = executedTasks.get();
+        return executed > 0 ? totalWaitTime.get() / executed : 0;
+    }
 
-        Canceller canceller;
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
 
-        boolean canceled;
+    public ExecutorStat getStat() {
+        ExecutorStat stat = new ExecutorStat();
+        stat.networkLanes = getNetworkLanes();
+        stat.activeLanes = getActiveCount();
+        stat.queueDepth = getQueueDepth();
+        stat.executedTasks = executedTasks.get();
+        stat.averageWaitTime = getAverageWaitTime();
+        stat.maxWaitTime = getMaxWaitTime();
+        return stat;
+    }
 
-        Endpoint endpoint;
+    /**
+     * Queue order like {@link RequestImpl#compareTo(RequestImpl)}: high priority requests first,
+     * then heavier requests, then FIFO. Tasks which are not single requests (batches) run before
+     * normal requests. Priority and weight are snapshotted on enqueue so the queue order never changes.
+     */
+    protected static class Priority implements Comparable<Priority> {
 
-        public ConnectionThread(Runnable runnable, int threadPriority, int count, Endpoint endpoint) {
-            super("JudoNetworking ConnectionPool " + count);
-            this.runnable = runnable;
-            this.endpoint = endpoint;
-            this.threadPriority = threadPriority;
+        final boolean highPriority;
+
+        final long weight;
+
+        final long sequence;
+
+        final long enqueueTime = System.currentTimeMillis();
 
+        Priority(Runnable runnable, long sequence) {
+            this.sequence = sequence;
+            if (runnable instanceof RequestImpl) {
+                RequestImpl request = (RequestImpl) runnable;
+                this.highPriority = request.isHighPriority();
+                this.weight = request.getWeight();
+            } else {
+                this.highPriority = false;
+                this.weight = Long.MAX_VALUE;
+            }
         }
 
         @Override
-        public void run() {
-            Process.setThreadPriority(threadPriority);
-            runnable.run();
+        public int compareTo(Priority another) {
+            if (highPriority != another.highPriority) {
+                return highPriority ? -1 : 1;
+            }
+            if (weight != another.weight) {
+                return weight > another.weight ? -1 : 1;
+            }
+            return sequence < another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+        }
+    }
+
+    protected interface PrioritizedRunnable extends Runnable, Comparable<PrioritizedRunnable> {
+
+        Priority getPriority();
+    }
+
+    /**
+     * Queue entry of submitted task, result and exception are available through its future.
+     */
+    protected static class PriorityTask<T> extends FutureTask<T> implements PrioritizedRunnable {
+
+        final Priority priority;
+
+        PriorityTask(Runnable runnable, T result, long sequence) {
+            super(runnable, result);
+            this.priority = new Priority(runnable, sequence);
         }
 
+        @Override
+        public Priority getPriority() {
+            return priority;
+        }
 
         @Override
-        public void interrupt() {
-            if ((endpoint.getDebugFlags() & Endpoint.THREAD_DEBUG) > 0) {
-                JudoLogger.log("Interrupt task on: " + getName(), JudoLogger.LogLevel.VERBOSE);
-            }
-            canceled = true;
-            super.interrupt();
-            if (canceller != null) {
-                canceller.cancel();
-                canceller = null;
-            }
+        public int compareTo(PrioritizedRunnable another) {
+            return priority.compareTo(another.getPriority());
+        }
+    }
+
+    /**
+     * Queue entry of executed runnable, exceptions are thrown to the worker thread.
+     */
+    protected static class PriorityRunnable implements PrioritizedRunnable {
+
+        final Runnable runnable;
+
+        final Priority priority;
+
+        PriorityRunnable(Runnable runnable, long sequence) {
+            this.runnable = runnable;
+            this.priority = new Priority(runnable, sequence);
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
         }
 
-        public void resetCanceled() {
-            this.canceled = false;
+        @Override
+        public Priority getPriority() {
+            return priority;
         }
 
-        public void setCanceller(Canceller canceller) {
-            this.canceller = canceller;
+        @Override
+        public int compareTo(PrioritizedRunnable another) {
+            return priority.compareTo(another.getPriority());
         }
+    }
+
+
+    public static class ConnectionThread extends Thread {
 
-        public interface Canceller {
+        Runnable runnable;
+
+        int threadPriority;
+
+        Endpoint endpoint;
+
+        public ConnectionThread(Runnable runnable, int threadPriority, int count, Endpoint endpoint) {
+            super("JudoNetworking ConnectionPool " + count);
+            this.runnable = runnable;
+            this.endpoint = endpoint;
+            this.threadPriority = threadPriority;
 
-            void cancel();
         }
 
-        public boolean isCanceled() {
-            return canceled;
+        @Override
+        public void run() {
+            Process.setThreadPriority(threadPriority);
+            runnable.run();
         }
     }
 }
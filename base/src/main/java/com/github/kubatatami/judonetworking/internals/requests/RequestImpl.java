@@ -5,6 +5,7 @@ import com.github.kubatatami.judonetworking.CacheInfo;
 import com.github.kubatatami.judonetworking.Endpoint;
 import com.github.kubatatami.judonetworking.Request;
 import com.github.kubatatami.judonetworking.annotations.ApiKeyRequired;
+import com.github.kubatatami.judonetworking.annotations.CoalesceCall;
 import com.github.kubatatami.judonetworking.annotations.Delay;
 import com.github.kubatatami.judonetworking.annotations.LocalCache;
 import com.github.kubatatami.judonetworking.annotations.RejectOnMonkeyTest;
@@ -12,12 +13,17 @@ import com.github.kubatatami.judonetworking.annotations.RequestMethod;
 import com.github.kubatatami.judonetworking.annotations.SingleCall;
 import com.github.kubatatami.judonetworking.callbacks.Callback;
 import com.github.kubatatami.judonetworking.callbacks.DefaultCallback;
+import com.github.kubatatami.judonetworking.callbacks.RefreshCallback;
 import com.github.kubatatami.judonetworking.exceptions.CancelException;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
 import com.github.kubatatami.judonetworking.internals.AsyncResultSender;
 import com.github.kubatatami.judonetworking.internals.EndpointImpl;
 import com.github.kubatatami.judonetworking.internals.ProgressObserver;
+import com.github.kubatatami.judonetworking.internals.RequestConnector;
 import com.github.kubatatami.judonetworking.internals.RequestProxy;
+import com.github.kubatatami.judonetworking.internals.cache.CacheKey;
+import com.github.kubatatami.judonetworking.internals.cache.CacheTags;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheKey;
 import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
 import com.github.kubatatami.judonetworking.internals.stats.TimeStat;
 import com.github.kubatatami.judonetworking.logs.ErrorLogger;
@@ -27,6 +33,8 @@ import com.github.kubatatami.judonetworking.utils.ReflectionCache;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
@@ -79,6 +87,18 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
 
     private long totalTimeMillis;
 
+    private CacheKey coalesceKey;
+
+    private DiskCacheKey diskCacheKey;
+
+    private final String[] cacheTags;
+
+    private final List<RequestImpl> followers = new ArrayList<>();
+
+    private boolean followersClosed;
+
+    private long deadline;
+
     public RequestImpl(Integer id, EndpointImpl rpc, Method method, String name, RequestMethod ann,
                        Object[] args, Type returnType, int timeout, Callback<Object> callback,
                        Serializable additionalControllerData) {
@@ -96,27 +116,50 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
         this.callback = callback == null ? new DefaultCallback<>() : callback;
         this.additionalControllerData = additionalControllerData;
         this.paramNames = ann.paramNames();
+        // before null arguments are filtered out, while they still match parameter annotations
+        this.cacheTags = method != null ? CacheTags.fromArgs(method, args) : CacheTags.NONE;
+        if (rpc.getRequestDeadline() > 0) {
+            this.deadline = System.currentTimeMillis() + rpc.getRequestDeadline();
+        }
     }
 
     @Override
     public void run() {
-        try {
-            if (!cancelled) {
-                Object result = rpc.getRequestConnector().call(this);
-                invokeCallback(result);
+        if (cancelled) {
+            return;
+        }
+        if (rpc.getRequestConnector().isAsyncSupported()) {
+            rpc.getRequestConnector().callAsync(this, new RequestConnector.ResultListener() {
+                @Override
+                public void onSuccess(Object result) {
+                    invokeCallback(result);
+                }
+
+                @Override
+                public void onError(JudoException e) {
+                    handleException(e);
+                }
+            });
+        } else {
+            try {
+                invokeCallback(rpc.getRequestConnector().call(this));
+            } catch (JudoException e) {
+                handleException(e);
             }
-        } catch (final JudoException e) {
-            invokeCallbackException(e);
-            if (rpc.getErrorLoggers().size() != 0 && !(e instanceof CancelException) && !cancelled) {
-                rpc.getHandler().post(new Runnable() {
-                    @Override
-                    public void run() {
-                        for (ErrorLogger errorLogger : rpc.getErrorLoggers()) {
-                            errorLogger.onError(e, RequestImpl.this);
-                        }
+        }
+    }
+
+    private void handleException(final JudoException e) {
+        invokeCallbackException(e);
+        if (rpc.getErrorLoggers().size() != 0 && !(e instanceof CancelException) && !cancelled) {
+            rpc.getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    for (ErrorLogger errorLogger : rpc.getErrorLoggers()) {
+                        errorLogger.onError(e, RequestImpl.this);
                     }
-                });
-            }
+                }
+            });
         }
     }
 
@@ -130,11 +173,73 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
     public void invokeCallbackException(JudoException e) {
         calcTime();
         rpc.getHandler().post(new AsyncResultSender(this, e));
+        for (RequestImpl follower : finishCoalescing()) {
+            follower.invokeCallbackException(e);
+        }
     }
 
     public void invokeCallback(Object result) {
         calcTime();
         rpc.getHandler().post(new AsyncResultSender(this, result));
+        for (RequestImpl follower : finishCoalescing()) {
+            if (rpc.getCacheMode() == Endpoint.CacheMode.CLONE) {
+                try {
+                    follower.invokeCallback(rpc.getClonner().clone(result));
+                } catch (JudoException e) {
+                    follower.invokeCallbackException(e);
+                }
+            } else {
+                follower.invokeCallback(result);
+            }
+        }
+    }
+
+    public void invokeRefresh(Object result) {
+        if (callback instanceof RefreshCallback) {
+            rpc.getHandler().post(new AsyncResultSender(this, result, new CacheInfo(false, System.currentTimeMillis())));
+        }
+    }
+
+    public boolean addFollower(RequestImpl follower) {
+        synchronized (followers) {
+            if (followersClosed || cancelled || done) {
+                return false;
+            }
+            followers.add(follower);
+            return true;
+        }
+    }
+
+    private List<RequestImpl> finishCoalescing() {
+        if (coalesceKey == null) {
+            return Collections.emptyList();
+        }
+        rpc.removeCoalescedRequest(this);
+        synchronized (followers) {
+            followersClosed = true;
+            List<RequestImpl> result = new ArrayList<>(followers);
+            followers.clear();
+            return result;
+        }
+    }
+
+    public DiskCacheKey getDiskCacheKey() {
+        if (diskCacheKey == null) {
+            diskCacheKey = new DiskCacheKey(args, cacheTags);
+        }
+        return diskCacheKey;
+    }
+
+    public String[] getCacheTags() {
+        return cacheTags;
+    }
+
+    public CacheKey getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    public void setCoalesceKey(CacheKey coalesceKey) {
+        this.coalesceKey = coalesceKey;
     }
 
     private void calcTime() {
@@ -240,6 +345,21 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
         return timeout;
     }
 
+    /**
+     * @return Absolute time in millis after which request is dropped, 0 if request has no deadline.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public boolean isDeadlineExceeded() {
+        return deadline > 0 && System.currentTimeMillis() >= deadline;
+    }
+
     public LocalCache getLocalCache() {
         if (method != null) {
             LocalCache ann = ReflectionCache.getAnnotationInherited(method, LocalCache.class);
@@ -277,6 +397,18 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
         }
     }
 
+    public CoalesceCall getCoalesceCall() {
+        if (method != null) {
+            CoalesceCall ann = ReflectionCache.getAnnotationInherited(method, CoalesceCall.class);
+            if (ann != null && !ann.enabled()) {
+                ann = null;
+            }
+            return ann;
+        } else {
+            return null;
+        }
+    }
+
     public int getLocalCacheLifeTime() {
         int lifeTime = getLocalCache().lifeTime();
         if (lifeTime == LocalCache.DEFAULT) {
@@ -308,6 +440,21 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
         }
     }
 
+    public boolean isLocalCacheRawBody() {
+        LocalCache localCache = getLocalCache();
+        return localCache != null && localCache.rawBody();
+    }
+
+    public boolean isLocalCacheRevalidate() {
+        LocalCache localCache = getLocalCache();
+        return localCache != null && localCache.revalidate();
+    }
+
+    public boolean isLocalCacheStaleWhileRevalidate() {
+        LocalCache localCache = getLocalCache();
+        return localCache != null && localCache.staleWhileRevalidate();
+    }
+
     public LocalCache.OnlyOnError getLocalCacheOnlyOnErrorMode() {
         LocalCache localCache = getLocalCache();
         if (localCache == null) {
@@ -365,7 +512,15 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
 
     private void tick() {
         if (callback != null) {
-            rpc.getHandler().post(new AsyncResultSender(this, ((int) this.progress * 100 / max)));
+            int percentProgress = (int) this.progress * 100 / max;
+            rpc.getHandler().post(new AsyncResultSender(this, percentProgress));
+            if (coalesceKey != null) {
+                synchronized (followers) {
+                    for (RequestImpl follower : followers) {
+                        rpc.getHandler().post(new AsyncResultSender(follower, percentProgress));
+                    }
+                }
+            }
         }
     }
 
@@ -421,6 +576,7 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
         if ((rpc.getDebugFlags() & Endpoint.CANCEL_DEBUG) > 0) {
             JudoLogger.log("Request " + name + " cancelled.", JudoLogger.LogLevel.DEBUG);
         }
+        rpc.getCancelRegistry().cancel(this);
         if (running) {
             running = false;
             synchronized (rpc.getSingleCallMethods()) {
@@ -428,7 +584,7 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
             }
 
             if (future != null) {
-                future.cancel(true);
+                future.cancel(false);
             }
             rpc.getHandler().post(new Runnable() {
                 @Override
@@ -436,8 +592,14 @@ public class RequestImpl implements Runnable, Comparable<RequestImpl>, ProgressO
                     callback.onFinish();
                 }
             });
+        } else if (future instanceof Runnable) {
+            rpc.getExecutorService().remove((Runnable) future);
         }
         rpc.stopRequest(RequestImpl.this);
+        List<RequestImpl> orphans = finishCoalescing();
+        if (orphans.size() > 0) {
+            rpc.promoteCoalescedRequests(orphans);
+        }
     }
 
     @Override
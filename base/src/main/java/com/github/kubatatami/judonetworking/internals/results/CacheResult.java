@@ -16,6 +16,31 @@ public class CacheResult implements Serializable {
 
     public Map<String, List<String>> headers;
 
+    /**
+     * Entry is expired and kept only for conditional revalidation.
+     */
+    public boolean stale;
+
+    /**
+     * Entry was found but it's older than requested life time.
+     */
+    public boolean expired;
+
+    /**
+     * Size of entry read from disk, for statistics.
+     */
+    public long size;
+
+    /**
+     * Arguments of cached call, read only by disk cache warm-up.
+     */
+    public Object[] args;
+
+    /**
+     * Tags of cached call, read only by disk cache warm-up.
+     */
+    public String[] tags;
+
     public CacheResult() {
 
     }
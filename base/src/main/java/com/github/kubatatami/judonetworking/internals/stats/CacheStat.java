@@ -0,0 +1,55 @@
+package com.github.kubatatami.judonetworking.internals.stats;
+
+import com.github.kubatatami.judonetworking.annotations.LocalCache;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of cache counters of one method on one cache level.
+ * {@link LocalCache.CacheLevel#MEMORY_ONLY} stands for memory cache of any method.
+ */
+public class CacheStat implements Serializable {
+
+    private static final long serialVersionUID = 3920617437311804652L;
+
+    public String methodName;
+
+    public LocalCache.CacheLevel cacheLevel;
+
+    public long hits = 0;
+
+    public long misses = 0;
+
+    public long expirations = 0;
+
+    public long evictions = 0;
+
+    /**
+     * Sum of lookup times in microseconds.
+     */
+    public long loadTime = 0;
+
+    /**
+     * Sum of entry sizes read from disk.
+     */
+    public long bytes = 0;
+
+    /**
+     * @return Hits divided by all lookups
+     */
+    public float getHitRatio() {
+        long lookups = hits + misses + expirations;
+        return lookups > 0 ? (float) hits / lookups : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "cacheLevel=" + cacheLevel +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", expirations=" + expirations +
+                ", evictions=" + evictions +
+                ", loadTime=" + loadTime +
+                ", bytes=" + bytes;
+    }
+}
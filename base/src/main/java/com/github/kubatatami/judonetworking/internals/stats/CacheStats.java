@@ -0,0 +1,127 @@
+package com.github.kubatatami.judonetworking.internals.stats;
+
+import com.github.kubatatami.judonetworking.annotations.LocalCache;
+import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live cache counters per method and cache level. Recording is lock-free so it can stay enabled in production.
+ * Load time is measured in microseconds, bytes are counted for disk reads.
+ */
+public class CacheStats {
+
+    protected final ConcurrentHashMap<Integer, Counters[]> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Records lookup finished with given result.
+     *
+     * @param startNanos {@link System#nanoTime()} taken before lookup
+     */
+    public void recordLookup(int methodId, String methodName, LocalCache.CacheLevel cacheLevel, CacheResult result, long startNanos) {
+        recordLookupDuration(methodId, methodName, cacheLevel, result, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records lookup which took given time, used when one bulk read serves many lookups.
+     *
+     * @param durationNanos Share of lookup time in nanoseconds
+     */
+    public void recordLookupDuration(int methodId, String methodName, LocalCache.CacheLevel cacheLevel, CacheResult result, long durationNanos) {
+        Counters methodCounters = getCounters(methodId, cacheLevel);
+        methodCounters.methodName = methodName;
+        methodCounters.loadTime.addAndGet(durationNanos / 1000);
+        if (!result.result) {
+            (result.expired ? methodCounters.expirations : methodCounters.misses).incrementAndGet();
+        } else if (result.stale) {
+            methodCounters.expirations.incrementAndGet();
+        } else {
+            methodCounters.hits.incrementAndGet();
+        }
+        if (result.size > 0) {
+            methodCounters.bytes.addAndGet(result.size);
+        }
+    }
+
+    public void recordEviction(int methodId, LocalCache.CacheLevel cacheLevel) {
+        getCounters(methodId, cacheLevel).evictions.incrementAndGet();
+    }
+
+    /**
+     * @return Snapshot of counters keyed by method name and cache level
+     */
+    public Map<String, CacheStat> getSnapshot() {
+        Map<String, CacheStat> snapshot = new HashMap<>();
+        for (Map.Entry<Integer, Counters[]> entry : counters.entrySet()) {
+            for (int i = 0; i < entry.getValue().length; i++) {
+                Counters methodCounters = entry.getValue()[i];
+                if (methodCounters != null) {
+                    CacheStat stat = methodCounters.toStat(LocalCache.CacheLevel.values()[i]);
+                    String name = stat.methodName != null ? stat.methodName : String.valueOf(entry.getKey());
+                    snapshot.put(name + ":" + stat.cacheLevel, stat);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+
+    protected Counters getCounters(int methodId, LocalCache.CacheLevel cacheLevel) {
+        Counters[] methodCounters = counters.get(methodId);
+        if (methodCounters == null) {
+            Counters[] newMethodCounters = new Counters[LocalCache.CacheLevel.values().length];
+            methodCounters = counters.putIfAbsent(methodId, newMethodCounters);
+            if (methodCounters == null) {
+                methodCounters = newMethodCounters;
+            }
+        }
+        int index = cacheLevel.ordinal();
+        Counters levelCounters = methodCounters[index];
+        if (levelCounters == null) {
+            synchronized (methodCounters) {
+                levelCounters = methodCounters[index];
+                if (levelCounters == null) {
+                    levelCounters = new Counters();
+                    methodCounters[index] = levelCounters;
+                }
+            }
+        }
+        return levelCounters;
+    }
+
+    protected static class Counters {
+
+        volatile String methodName;
+
+        final AtomicLong hits = new AtomicLong();
+
+        final AtomicLong misses = new AtomicLong();
+
+        final AtomicLong expirations = new AtomicLong();
+
+        final AtomicLong evictions = new AtomicLong();
+
+        final AtomicLong loadTime = new AtomicLong();
+
+        final AtomicLong bytes = new AtomicLong();
+
+        CacheStat toStat(LocalCache.CacheLevel cacheLevel) {
+            CacheStat stat = new CacheStat();
+            stat.methodName = methodName;
+            stat.cacheLevel = cacheLevel;
+            stat.hits = hits.get();
+            stat.misses = misses.get();
+            stat.expirations = expirations.get();
+            stat.evictions = evictions.get();
+            stat.loadTime = loadTime.get();
+            stat.bytes = bytes.get();
+            return stat;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.kubatatami.judonetworking.internals.stats;
+
+import java.io.Serializable;
+
+public class ExecutorStat implements Serializable {
+
+    private static final long serialVersionUID = 4617702349128753617L;
+
+    public int networkLanes = 0;
+
+    public int activeLanes = 0;
+
+    public int queueDepth = 0;
+
+    public long executedTasks = 0;
+
+    public long averageWaitTime = 0;
+
+    public long maxWaitTime = 0;
+
+    @Override
+    public String toString() {
+        return "networkLanes=" + networkLanes +
+                ", activeLanes=" + activeLanes +
+                ", queueDepth=" + queueDepth +
+                ", executedTasks=" + executedTasks +
+                ", averageWaitTime=" + averageWaitTime +
+                ", maxWaitTime=" + maxWaitTime;
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.kubatatami.judonetworking.internals.streams;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Copies everything read from stream to given output. Failure of the output doesn't break reading,
+ * it's only reported by {@link #isFailed()}.
+ */
+public class TeeInputStream extends FilterInputStream {
+
+    private final OutputStream output;
+
+    private boolean failed;
+
+    public TeeInputStream(InputStream stream, OutputStream output) {
+        super(stream);
+        this.output = output;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = super.read();
+        if (result != -1) {
+            copy(result);
+        }
+        return result;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int result = super.read(b, off, len);
+        if (result > 0) {
+            copy(b, off, result);
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 4096)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    /**
+     * Reads stream to the end so output gets whole content.
+     */
+    public void drain() throws IOException {
+        byte[] buffer = new byte[4096];
+        while (read(buffer, 0, buffer.length) != -1) {
+        }
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    private void copy(int b) {
+        if (!failed) {
+            try {
+                output.write(b);
+            } catch (IOException e) {
+                failed = true;
+            }
+        }
+    }
+
+    private void copy(byte[] b, int off, int len) {
+        if (!failed) {
+            try {
+                output.write(b, off, len);
+            } catch (IOException e) {
+                failed = true;
+            }
+        }
+    }
+}
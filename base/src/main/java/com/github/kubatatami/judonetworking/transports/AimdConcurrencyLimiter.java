@@ -0,0 +1,229 @@
+package com.github.kubatatami.judonetworking.transports;
+
+import com.github.kubatatami.judonetworking.exceptions.CancelException;
+import com.github.kubatatami.judonetworking.exceptions.ConnectionException;
+import com.github.kubatatami.judonetworking.exceptions.JudoException;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Additive increase, multiplicative decrease limiter. Limit of host grows by one per window of
+ * successful responses and is multiplied by backoff ratio when request is dropped or short-term average
+ * round trip time exceeds latency tolerance times long-term average. Both averages cover all methods of host,
+ * so a mix of fast and slow endpoints doesn't look like congestion. Limit is decreased at most once per window:
+ * responses to requests which were already in flight at decrease time belong to the same congestion event.
+ */
+public class AimdConcurrencyLimiter implements ConcurrencyLimiter {
+
+    protected final ConcurrentHashMap<String, HostLimit> hosts = new ConcurrentHashMap<>();
+
+    protected final int initialLimit;
+
+    protected final int minLimit;
+
+    protected final int maxLimit;
+
+    protected double backoffRatio = 0.9;
+
+    protected double latencyTolerance = 2.0;
+
+    protected double shortRttSmoothing = 0.1;
+
+    protected double longRttSmoothing = 0.01;
+
+    public AimdConcurrencyLimiter() {
+        this(4, 1, 64);
+    }
+
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max.");
+        }
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public Permit acquire(String host, long maxWait) throws JudoException {
+        HostLimit hostLimit = getHostLimit(host);
+        long end = System.currentTimeMillis() + maxWait;
+        synchronized (hostLimit) {
+            while (hostLimit.inFlight >= (int) hostLimit.limit) {
+                long wait = end - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new ConnectionException("Concurrency limit of " + host + " reached.");
+                }
+                try {
+                    hostLimit.wait(wait);
+                } catch (InterruptedException e) {
+                    throw new CancelException(host);
+                }
+            }
+            hostLimit.inFlight++;
+        }
+        return new HostPermit(hostLimit);
+    }
+
+    public int getLimit(String host) {
+        HostLimit hostLimit = hosts.get(host);
+        if (hostLimit == null) {
+            return initialLimit;
+        }
+        synchronized (hostLimit) {
+            return (int) hostLimit.limit;
+        }
+    }
+
+    public int getInFlight(String host) {
+        HostLimit hostLimit = hosts.get(host);
+        if (hostLimit == null) {
+            return 0;
+        }
+        synchronized (hostLimit) {
+            return hostLimit.inFlight;
+        }
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be in (0, 1).");
+        }
+        this.backoffRatio = backoffRatio;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * @param shortRttSmoothing Weight of new sample in short-term average round trip time
+     * @param longRttSmoothing  Weight of new sample in long-term average round trip time, lower than short-term one
+     */
+    public void setRttSmoothing(double shortRttSmoothing, double longRttSmoothing) {
+        if (longRttSmoothing <= 0 || shortRttSmoothing <= longRttSmoothing || shortRttSmoothing > 1) {
+            throw new IllegalArgumentException("Smoothing must satisfy 0 < long < short <= 1.");
+        }
+        this.shortRttSmoothing = shortRttSmoothing;
+        this.longRttSmoothing = longRttSmoothing;
+    }
+
+    protected HostLimit getHostLimit(String host) {
+        HostLimit hostLimit = hosts.get(host);
+        if (hostLimit == null) {
+            HostLimit newHostLimit = new HostLimit(initialLimit);
+            hostLimit = hosts.putIfAbsent(host, newHostLimit);
+            if (hostLimit == null) {
+                hostLimit = newHostLimit;
+            }
+        }
+        return hostLimit;
+    }
+
+    protected void onSuccess(HostLimit hostLimit, long roundTripTime) {
+        synchronized (hostLimit) {
+            hostLimit.inFlight--;
+            if (hostLimit.longRtt == 0) {
+                hostLimit.shortRtt = hostLimit.longRtt = Math.max(1, roundTripTime);
+            } else {
+                hostLimit.shortRtt += (roundTripTime - hostLimit.shortRtt) * shortRttSmoothing;
+                hostLimit.longRtt += (roundTripTime - hostLimit.longRtt) * longRttSmoothing;
+            }
+            if (hostLimit.recoveryResponses > 0) {
+                hostLimit.recoveryResponses--;
+            } else if (hostLimit.shortRtt > hostLimit.longRtt * latencyTolerance) {
+                decrease(hostLimit);
+            } else if (hostLimit.inFlight + 1 >= (int) hostLimit.limit / 2) {
+                hostLimit.limit = Math.min(maxLimit, hostLimit.limit + 1.0 / hostLimit.limit);
+            }
+            hostLimit.notifyAll();
+        }
+    }
+
+    protected void onDropped(HostLimit hostLimit) {
+        synchronized (hostLimit) {
+            hostLimit.inFlight--;
+            if (hostLimit.recoveryResponses > 0) {
+                hostLimit.recoveryResponses--;
+            } else {
+                decrease(hostLimit);
+            }
+            hostLimit.notifyAll();
+        }
+    }
+
+    protected void onIgnore(HostLimit hostLimit) {
+        synchronized (hostLimit) {
+            hostLimit.inFlight--;
+            if (hostLimit.recoveryResponses > 0) {
+                hostLimit.recoveryResponses--;
+            }
+            hostLimit.notifyAll();
+        }
+    }
+
+    private void decrease(HostLimit hostLimit) {
+        hostLimit.limit = Math.max(minLimit, hostLimit.limit * backoffRatio);
+        hostLimit.recoveryResponses = hostLimit.inFlight;
+    }
+
+    protected static class HostLimit {
+
+        double limit;
+
+        int inFlight;
+
+        double shortRtt;
+
+        double longRtt;
+
+        /**
+         * Responses left from window of last decrease.
+         */
+        int recoveryResponses;
+
+        HostLimit(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    protected class HostPermit implements Permit {
+
+        private final HostLimit hostLimit;
+
+        private boolean released;
+
+        HostPermit(HostLimit hostLimit) {
+            this.hostLimit = hostLimit;
+        }
+
+        @Override
+        public void onSuccess(long roundTripTime) {
+            if (release()) {
+                AimdConcurrencyLimiter.this.onSuccess(hostLimit, roundTripTime);
+            }
+        }
+
+        @Override
+        public void onDropped() {
+            if (release()) {
+                AimdConcurrencyLimiter.this.onDropped(hostLimit);
+            }
+        }
+
+        @Override
+        public void onIgnore() {
+            if (release()) {
+                AimdConcurrencyLimiter.this.onIgnore(hostLimit);
+            }
+        }
+
+        private synchronized boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            return true;
+        }
+    }
+}
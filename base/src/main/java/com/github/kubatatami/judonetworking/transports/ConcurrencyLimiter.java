@@ -0,0 +1,39 @@
+package com.github.kubatatami.judonetworking.transports;
+
+import com.github.kubatatami.judonetworking.exceptions.JudoException;
+
+/**
+ * Limits number of requests sent to one host at the same time.
+ */
+public interface ConcurrencyLimiter {
+
+    /**
+     * Blocks until request to given host may be sent.
+     *
+     * @param host    Request host
+     * @param maxWait Max wait time in millis
+     * @return Permit which must be released when response is received or request fails
+     * @throws JudoException when permit isn't available in max wait time
+     */
+    Permit acquire(String host, long maxWait) throws JudoException;
+
+    interface Permit {
+
+        /**
+         * Server responded.
+         *
+         * @param roundTripTime Time from sending request to receiving response headers
+         */
+        void onSuccess(long roundTripTime);
+
+        /**
+         * Request failed because of connection problem, timeout or server overload.
+         */
+        void onDropped();
+
+        /**
+         * Request ended without telling anything about the link, for example it was cancelled.
+         */
+        void onIgnore();
+    }
+}
@@ -1,8 +1,10 @@
 package com.github.kubatatami.judonetworking.transports;
 
 import com.github.kubatatami.judonetworking.controllers.ProtocolController;
+import com.github.kubatatami.judonetworking.exceptions.DeadlineExceededException;
 import com.github.kubatatami.judonetworking.exceptions.HttpException;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
+import com.github.kubatatami.judonetworking.exceptions.NotModifiedException;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -41,7 +43,30 @@ public abstract class HttpTransportLayer extends TransportLayer {
     }
 
 
+    protected int getConnectTimeout(ProtocolController.RequestInfo requestInfo) throws DeadlineExceededException {
+        return capByDeadline(connectTimeout, requestInfo.deadline);
+    }
+
+    protected int getReadTimeout(ProtocolController.RequestInfo requestInfo, int timeout) throws DeadlineExceededException {
+        return capByDeadline(timeout == 0 ? methodTimeout : timeout, requestInfo.deadline);
+    }
+
+    protected static int capByDeadline(int timeout, long deadline) throws DeadlineExceededException {
+        if (deadline <= 0) {
+            return timeout;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        }
+        // timeout 0 means no timeout, so deadline is the only limit
+        return (int) Math.min(timeout == 0 ? Integer.MAX_VALUE : timeout, remaining);
+    }
+
     protected void handleHttpException(ProtocolController protocolController, int code, String message, String body) throws JudoException {
+        if (code == 304) {
+            throw new NotModifiedException(message + "(" + code + ") ", code);
+        }
         protocolController.parseError(code, message);
         throw new HttpException(message + "(" + code + ") ", body, code);
     }
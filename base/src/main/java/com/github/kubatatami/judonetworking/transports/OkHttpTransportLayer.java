@@ -7,7 +7,7 @@ import com.github.kubatatami.judonetworking.controllers.ProtocolController;
 import com.github.kubatatami.judonetworking.exceptions.CancelException;
 import com.github.kubatatami.judonetworking.exceptions.ConnectionException;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
-import com.github.kubatatami.judonetworking.internals.executors.JudoExecutor;
+import com.github.kubatatami.judonetworking.internals.CancelRegistry;
 import com.github.kubatatami.judonetworking.internals.stats.TimeStat;
 import com.github.kubatatami.judonetworking.internals.streams.RequestOutputStream;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
@@ -59,11 +59,9 @@ public class OkHttpTransportLayer extends HttpTransportLayer {
         if (requestInfo.mimeType != null) {
             builder.addHeader("Content-Type", requestInfo.mimeType);
         }
-        clientBuilder.connectTimeout(connectTimeout, TimeUnit.MILLISECONDS);
+        clientBuilder.connectTimeout(getConnectTimeout(requestInfo), TimeUnit.MILLISECONDS);
 
-        if (timeout == 0) {
-            timeout = methodTimeout;
-        }
+        timeout = getReadTimeout(requestInfo, timeout);
         timeStat.setTimeout(timeout);
         clientBuilder.readTimeout(timeout, TimeUnit.MILLISECONDS);
 
@@ -82,112 +80,69 @@ public class OkHttpTransportLayer extends HttpTransportLayer {
 
     protected Response sendRequest(OkHttpClient client, Request.Builder builder, final ProtocolController.RequestInfo requestInfo,
                                    final TimeStat timeStat, Method method, int debugFlags) throws Exception {
-        RequestBody requestBody = null;
-        String methodName = "GET";
         try {
-            if (requestInfo.entity != null) {
-                methodName = "POST";
-                requestBody = createRequestBody(requestInfo, timeStat);
-            }
-            logRequest(requestInfo, debugFlags, requestBody);
-            methodName = changeHttpMethod(method, methodName);
-            requestBody = createEmptyRequestBody(requestInfo, requestBody, methodName);
-            final Call call = client.newCall(builder.method(methodName, requestBody).build());
-            attachCanceller(call);
-            if (experimentalAsync) {
-                return handleResponseExperimental(timeStat, requestBody, call);
-            } else {
-                return handleResponse(timeStat, requestBody, call);
+            final Call call = createCall(client, builder, requestInfo, timeStat, method, debugFlags);
+            if (!attachCanceller(requestInfo, call)) {
+                throw new CancelException(requestInfo.url);
             }
+            return handleResponse(timeStat, call);
         } finally {
-            if (requestInfo.entity != null) {
+            closeEntity(requestInfo);
+        }
+    }
+
+    protected Call createCall(OkHttpClient client, Request.Builder builder, final ProtocolController.RequestInfo requestInfo,
+                              final TimeStat timeStat, Method method, int debugFlags) throws Exception {
+        RequestBody requestBody = null;
+        String methodName = "GET";
+        if (requestInfo.entity != null) {
+            methodName = "POST";
+            requestBody = createRequestBody(requestInfo, timeStat);
+        }
+        logRequest(requestInfo, debugFlags, requestBody);
+        methodName = changeHttpMethod(method, methodName);
+        requestBody = createEmptyRequestBody(requestInfo, requestBody, methodName);
+        return client.newCall(builder.method(methodName, requestBody).build());
+    }
+
+    private void closeEntity(ProtocolController.RequestInfo requestInfo) {
+        if (requestInfo.entity != null) {
+            try {
                 requestInfo.entity.close();
+            } catch (IOException e) {
+                JudoLogger.log(e);
             }
         }
     }
 
-    private Response handleResponse(TimeStat timeStat, RequestBody requestBody, Call call) throws IOException, InterruptedException {
-        Response response = null;
+    private Response handleResponse(TimeStat timeStat, Call call) throws IOException {
+        Response response;
         try {
             response = call.execute();
         } catch (IOException ex) {
-            checkThreadCancelled(ex);
-        }
-        timeStat.tickConnectionTime();
-        if (requestBody != null) {
-            timeStat.tickSendTime();
+            if (call.isCanceled()) {
+                throw new CancelException(call.request().url().toString());
+            }
+            throw ex;
         }
+        tickResponseTime(timeStat, call);
         return response;
     }
 
-    private Response handleResponseExperimental(TimeStat timeStat, RequestBody requestBody, Call call) throws IOException, InterruptedException {
-        final OkHttpAsyncResult result = new OkHttpAsyncResult();
-        call.enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                synchronized (result) {
-                    result.ex = e;
-                    result.notify();
-                }
-            }
-
-            @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                synchronized (result) {
-                    result.response = response;
-                    result.notify();
-                }
-            }
-        });
-        synchronized (result) {
-            result.wait();
-        }
-        if (result.ex != null) {
-            checkThreadCancelled(result.ex);
-        }
+    private void tickResponseTime(TimeStat timeStat, Call call) {
         timeStat.tickConnectionTime();
-        if (requestBody != null) {
+        if (call.request().body() != null) {
             timeStat.tickSendTime();
         }
-        return result.response;
     }
 
-    private static class OkHttpAsyncResult {
-
-        Response response;
-
-        IOException ex;
-    }
-
-    private void checkThreadCancelled(IOException ex) throws IOException {
-        if (Thread.currentThread() instanceof JudoExecutor.ConnectionThread) {
-            JudoExecutor.ConnectionThread thread = (JudoExecutor.ConnectionThread) Thread.currentThread();
-            if (thread.isCanceled()) {
-                thread.resetCanceled();
-                throw new CancelException(thread.getName());
-            } else {
-                throw ex;
+    private boolean attachCanceller(ProtocolController.RequestInfo requestInfo, final Call call) {
+        return requestInfo.cancelRegistration == null || requestInfo.cancelRegistration.attach(new CancelRegistry.Cancellable() {
+            @Override
+            public void cancel() {
+                call.cancel();
             }
-        } else {
-            throw ex;
-        }
-    }
-
-    private void attachCanceller(final Call call) {
-        if (Thread.currentThread() instanceof JudoExecutor.ConnectionThread) {
-            JudoExecutor.ConnectionThread connectionThread = (JudoExecutor.ConnectionThread) Thread.currentThread();
-            connectionThread.setCanceller(new JudoExecutor.ConnectionThread.Canceller() {
-                @Override
-                public void cancel() {
-                    new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            call.cancel();
-                        }
-                    }).start();
-                }
-            });
-        }
+        });
     }
 
     @NonNull
@@ -264,41 +219,93 @@ public class OkHttpTransportLayer extends HttpTransportLayer {
         try {
             OkHttpBuilder builder = new OkHttpBuilder();
             builder.url(requestInfo.url);
-            if (Thread.currentThread().isInterrupted()) {
-                return null;
-            }
             OkHttpClient client = initSetup(baseClient.newBuilder(), builder, requestInfo, timeout, timeStat);
 
             logRequestHeaders(requestName, debugFlags, builder);
 
             Response response = sendRequest(client, builder, requestInfo, timeStat, method, debugFlags);
 
-            logResponseHeaders(requestName, debugFlags, response);
+            return createConnection(requestName, protocolController, debugFlags, response);
+        } catch (Exception ex) {
+            throw toJudoException(ex);
+        }
+    }
 
-            if (!response.isSuccessful() && response.code() != 0) {
-                int code = response.code();
-                String message = response.message();
-                String body = "";
+    @Override
+    public void sendAsync(final String requestName, final ProtocolController protocolController, final ProtocolController.RequestInfo requestInfo,
+                          int timeout, final TimeStat timeStat, final int debugFlags, Method method, final ConnectionCallback callback) {
+        Call call;
+        try {
+            OkHttpBuilder builder = new OkHttpBuilder();
+            builder.url(requestInfo.url);
+            OkHttpClient client = initSetup(baseClient.newBuilder(), builder, requestInfo, timeout, timeStat);
+            logRequestHeaders(requestName, debugFlags, builder);
+            call = createCall(client, builder, requestInfo, timeStat, method, debugFlags);
+        } catch (Exception ex) {
+            closeEntity(requestInfo);
+            callback.onError(toJudoException(ex));
+            return;
+        }
+        if (!attachCanceller(requestInfo, call)) {
+            closeEntity(requestInfo);
+            callback.onError(new CancelException(requestName));
+            return;
+        }
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                closeEntity(requestInfo);
+                callback.onError(call.isCanceled() ? new CancelException(requestName) : new ConnectionException(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                closeEntity(requestInfo);
+                tickResponseTime(timeStat, call);
+                Connection connection;
                 try {
-                    body = response.body().string();
-                } catch (IOException ignored) {
+                    connection = createConnection(requestName, protocolController, debugFlags, response);
+                } catch (Exception ex) {
+                    response.close();
+                    callback.onError(toJudoException(ex));
+                    return;
                 }
-                handleHttpException(protocolController, code, message, body);
+                callback.onConnection(connection);
             }
+        });
+    }
 
-            if ((debugFlags & Endpoint.RESPONSE_DEBUG) > 0) {
-                longLog("Response code(" + requestName + ")", response.code() + "", JudoLogger.LogLevel.DEBUG);
-                longLog("Response protocol(" + requestName + ")", response.protocol().toString(), JudoLogger.LogLevel.DEBUG);
-            }
-            return new OkConnection(response);
+    @Override
+    public boolean isAsyncSupported() {
+        return experimentalAsync;
+    }
 
+    protected Connection createConnection(String requestName, ProtocolController protocolController, int debugFlags, Response response) throws JudoException {
+        logResponseHeaders(requestName, debugFlags, response);
 
-        } catch (Exception ex) {
-            if (!(ex instanceof JudoException)) {
-                throw new ConnectionException(ex);
-            } else {
-                throw (JudoException) ex;
+        if (!response.isSuccessful() && response.code() != 0) {
+            int code = response.code();
+            String message = response.message();
+            String body = "";
+            try {
+                body = response.body().string();
+            } catch (IOException ignored) {
             }
+            handleHttpException(protocolController, code, message, body);
+        }
+
+        if ((debugFlags & Endpoint.RESPONSE_DEBUG) > 0) {
+            longLog("Response code(" + requestName + ")", response.code() + "", JudoLogger.LogLevel.DEBUG);
+            longLog("Response protocol(" + requestName + ")", response.protocol().toString(), JudoLogger.LogLevel.DEBUG);
+        }
+        return new OkConnection(response);
+    }
+
+    private JudoException toJudoException(Exception ex) {
+        if (!(ex instanceof JudoException)) {
+            return new ConnectionException(ex);
+        } else {
+            return (JudoException) ex;
         }
     }
 
@@ -22,6 +22,29 @@ public abstract class TransportLayer {
     public abstract Connection send(String requestName, ProtocolController protocolController, ProtocolController.RequestInfo requestInfo,
                                     int timeout, TimeStat timeStat, int debugFlags, Method method) throws JudoException;
 
+    /**
+     * Sends request without blocking the calling thread. Default implementation calls {@link #send} synchronously.
+     * Exactly one of callback methods is invoked.
+     */
+    public void sendAsync(String requestName, ProtocolController protocolController, ProtocolController.RequestInfo requestInfo,
+                          int timeout, TimeStat timeStat, int debugFlags, Method method, ConnectionCallback callback) {
+        Connection connection;
+        try {
+            connection = send(requestName, protocolController, requestInfo, timeout, timeStat, debugFlags, method);
+        } catch (JudoException e) {
+            callback.onError(e);
+            return;
+        }
+        callback.onConnection(connection);
+    }
+
+    /**
+     * @return true if {@link #sendAsync} doesn't block the calling thread, otherwise requests are sent by {@link #send}
+     */
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
     public abstract void setMaxConnections(int max);
 
     public abstract void setConnectTimeout(int connectTimeout);
@@ -45,6 +68,14 @@ public abstract class TransportLayer {
     }
 
 
+    public interface ConnectionCallback {
+
+        void onConnection(Connection connection);
+
+        void onError(JudoException e);
+    }
+
+
     protected void longLog(String tag, String message, JudoLogger.LogLevel level) {
         JudoLogger.longLog(tag, message, level);
     }
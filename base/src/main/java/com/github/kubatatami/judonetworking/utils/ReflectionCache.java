@@ -27,6 +27,11 @@ public class ReflectionCache {
 
     protected final static LruCache<Method, Type[]> methodParamsTypeCache = new LruCache<>(100);
 
+    protected final static LruCache<Class<?>, Boolean> libraryClassCache = new LruCache<>(100);
+
+    protected final static String[] LIBRARY_PACKAGES = {"java.", "javax.", "android.", "dalvik.", "sun.", "com.android.",
+            "com.google.", "org.apache.", "org.json.", "com.fasterxml.", "okhttp3.", "okio.", "kotlin."};
+
     public static void clearCache() {
         interfaceAnnotationCache.evictAll();
         fieldCache.evictAll();
@@ -34,6 +39,28 @@ public class ReflectionCache {
         methodParamAnnotationCache.evictAll();
         fieldAnnotationCache.evictAll();
         methodParamsTypeCache.evictAll();
+        libraryClassCache.evictAll();
+    }
+
+    /**
+     * @return true if class or any of its superclasses comes from platform or a common library
+     * instead of from the app
+     */
+    public static boolean isLibraryClass(Class<?> clazz) {
+        Boolean result = libraryClassCache.get(clazz);
+        if (result == null) {
+            result = false;
+            for (Class<?> current = clazz; current != null && current != Object.class && !result; current = current.getSuperclass()) {
+                for (String libraryPackage : LIBRARY_PACKAGES) {
+                    if (current.getName().startsWith(libraryPackage)) {
+                        result = true;
+                        break;
+                    }
+                }
+            }
+            libraryClassCache.put(clazz, result);
+        }
+        return result;
     }
 
     public static Annotation[] getAnnotations(Class<?> apiInterface) {
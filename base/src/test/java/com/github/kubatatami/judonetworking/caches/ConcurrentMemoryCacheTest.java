@@ -0,0 +1,114 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import com.github.kubatatami.judonetworking.internals.cache.CacheKey;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentMemoryCacheTest {
+
+    private static final int WEIGHT = 100;
+
+    private ConcurrentMemoryCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ConcurrentMemoryCache(null);
+        cache.setWeigher(new Weigher() {
+            @Override
+            public int weigh(Object object) {
+                return WEIGHT;
+            }
+        });
+    }
+
+    @Test
+    public void limitsMethodExactlyToCacheSize() {
+        for (int i = 0; i < 100; i++) {
+            cache.put(1, new Object[]{i}, "value " + i, 9, null, null);
+        }
+
+        int count = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get(1, new Object[]{i}, 0, 9).result) {
+                count++;
+            }
+        }
+        assertEquals(9, count);
+        assertEquals(9 * WEIGHT, cache.getSizeInBytes());
+        assertTrue(cache.get(1, new Object[]{99}, 0, 9).result);
+        assertFalse(cache.get(1, new Object[]{90}, 0, 9).result);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntryOfAllMethods() {
+        cache.put(1, new Object[]{"a"}, "a", 0, null, null);
+        cache.put(2, new Object[]{"b"}, "b", 0, null, null);
+        cache.put(1, new Object[]{"c"}, "c", 0, null, null);
+        cache.get(1, new Object[]{"a"}, 0, 0);
+
+        cache.trimToSize(2 * WEIGHT);
+
+        assertFalse(cache.get(2, new Object[]{"b"}, 0, 0).result);
+        assertTrue(cache.get(1, new Object[]{"c"}, 0, 0).result);
+        assertTrue(cache.get(1, new Object[]{"a"}, 0, 0).result);
+
+        cache.trimToSize(WEIGHT);
+
+        assertTrue(cache.get(1, new Object[]{"a"}, 0, 0).result);
+        assertFalse(cache.get(1, new Object[]{"c"}, 0, 0).result);
+        assertEquals(WEIGHT, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void keepsByteBudget() {
+        cache.setMaxBytes(5 * WEIGHT);
+        for (int i = 0; i < 20; i++) {
+            cache.put(i % 3, new Object[]{i}, "value " + i, 0, null, null);
+        }
+
+        assertEquals(5 * WEIGHT, cache.getSizeInBytes());
+        for (int i = 15; i < 20; i++) {
+            assertTrue(cache.get(i % 3, new Object[]{i}, 0, 0).result);
+        }
+    }
+
+    @Test
+    public void keepsCreateTime() {
+        long createTime = System.currentTimeMillis() - 10000;
+        cache.put(1, new Object[]{"a"}, "a", 0, null, null, createTime);
+
+        assertEquals(createTime, (long) cache.get(1, new Object[]{"a"}, 0, 0).time);
+        assertTrue(cache.get(1, new Object[]{"a"}, 5000, 0).expired);
+    }
+
+    @Test
+    public void keepsPutRacingWithClear() {
+        cache.put(1, new Object[]{"a"}, "a", 0, null, null);
+        ConcurrentMemoryCache.MethodCache methodCache = cache.getMethodCache(1, 0);
+
+        cache.clearCache();
+        methodCache.putEntry(new CacheKey(1, new Object[]{"b"}), new ConcurrentMemoryCache.CacheEntry(0, "b", null, WEIGHT, 0));
+
+        assertTrue(cache.get(1, new Object[]{"b"}, 0, 0).result);
+        assertEquals(WEIGHT, cache.getSizeInBytes());
+        cache.trimToSize(0);
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void removesByTag() {
+        cache.put(1, new Object[]{"a"}, "a", 0, null, new String[]{"user:1"});
+        cache.put(1, new Object[]{"b"}, "b", 0, null, new String[]{"user:2"});
+
+        cache.clearCacheByTag("user:1");
+
+        assertFalse(cache.get(1, new Object[]{"a"}, 0, 0).result);
+        assertTrue(cache.get(1, new Object[]{"b"}, 0, 0).result);
+        assertEquals(WEIGHT, cache.getSizeInBytes());
+    }
+}
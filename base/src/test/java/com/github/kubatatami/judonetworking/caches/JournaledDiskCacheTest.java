@@ -0,0 +1,213 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import com.github.kubatatami.judonetworking.annotations.LocalCache;
+import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheKey;
+import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JournaledDiskCacheTest {
+
+    private File root;
+
+    private CacheMethod method;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("journal", "test");
+        root.delete();
+        root.mkdirs();
+        method = new CacheMethod(1, "method", "Api", "http://localhost", LocalCache.CacheLevel.DISK_CACHE, String.class);
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    @Test
+    public void reloadsEntries() {
+        createCache().put(method, key("a"), "value a", 0, null);
+        createCache().put(method, key("b"), "value b", 0, null);
+        createCache().clearCache(method, "a");
+
+        JournaledDiskCache cache = createCache();
+        assertFalse(cache.get(method, key("a"), 0).result);
+        assertEquals("value b", cache.get(method, key("b"), 0).object);
+    }
+
+    @Test
+    public void keepsLimitPerMethodAfterReload() {
+        JournaledDiskCache cache = createCache();
+        cache.put(method, key("a"), "value a", 2, null);
+        cache.put(method, key("b"), "value b", 2, null);
+        cache.put(method, key("c"), "value c", 2, null);
+
+        cache = createCache();
+        assertFalse(cache.get(method, key("a"), 0).result);
+        assertTrue(cache.get(method, key("b"), 0).result);
+        assertTrue(cache.get(method, key("c"), 0).result);
+    }
+
+    @Test
+    public void rewritesTornJournal() throws IOException {
+        createCache().put(method, key("a"), "value a", 0, null);
+        File journal = getJournalFile();
+        long length = journal.length();
+        DataOutputStream os = new DataOutputStream(new FileOutputStream(journal, true));
+        os.writeByte(JournaledDiskCache.OP_PUT);
+        os.writeInt(Integer.MAX_VALUE);
+        os.close();
+
+        JournaledDiskCache cache = createCache();
+        assertTrue(cache.getSize(LocalCache.CacheLevel.DISK_CACHE) > 0);
+        assertEquals(length, journal.length());
+        assertEquals("value a", cache.get(method, key("a"), 0).object);
+        cache.put(method, key("b"), "value b", 0, null);
+
+        cache = createCache();
+        assertEquals("value a", cache.get(method, key("a"), 0).object);
+        assertEquals("value b", cache.get(method, key("b"), 0).object);
+    }
+
+    @Test
+    public void ignoresCorruptedTagCount() throws IOException {
+        createCache().put(method, key("a"), "value a", 0, null);
+        DataOutputStream os = new DataOutputStream(new FileOutputStream(getJournalFile(), true));
+        os.writeByte(JournaledDiskCache.OP_TAGS);
+        os.writeInt(1);
+        os.writeByte('a');
+        os.writeInt(-1);
+        os.close();
+
+        assertEquals("value a", createCache().get(method, key("a"), 0).object);
+    }
+
+    @Test
+    public void keepsEntryReplacedDuringFailedRead() {
+        JournaledDiskCache cache = createCache();
+        cache.put(method, key("a"), "value a", 0, null);
+        JournaledDiskCache.Journal journal = cache.getJournal(LocalCache.CacheLevel.DISK_CACHE);
+        JournaledDiskCache.Entry entry = journal.get(cache.getKey(method, key("a")));
+
+        cache.put(method, key("a"), "value b", 0, null);
+        journal.removeIfSame(entry);
+
+        assertEquals("value b", cache.get(method, key("a"), 0).object);
+        journal.removeIfSame(journal.get(cache.getKey(method, key("a"))));
+        assertFalse(cache.get(method, key("a"), 0).result);
+    }
+
+    @Test
+    public void compactsJournal() {
+        JournaledDiskCache cache = createCache();
+        cache.put(method, key("a"), "value a", 0, null);
+        long length = getJournalFile().length();
+        for (int i = 0; i < JournaledDiskCache.COMPACT_THRESHOLD; i++) {
+            cache.refresh(method, key("a"));
+        }
+
+        assertTrue(getJournalFile().length() <= length);
+        assertEquals("value a", createCache().get(method, key("a"), 0).object);
+    }
+
+    @Test
+    public void compactsJournalOnReads() {
+        JournaledDiskCache cache = createCache();
+        cache.put(method, key("a"), "value a", 0, null);
+        long length = getJournalFile().length();
+        for (int i = 0; i < JournaledDiskCache.COMPACT_THRESHOLD; i++) {
+            cache.get(method, key("a"), 0);
+        }
+
+        assertTrue(getJournalFile().length() <= length);
+        assertEquals("value a", createCache().get(method, key("a"), 0).object);
+    }
+
+    @Test
+    public void removesByTagAfterReload() {
+        createCache().put(method, new DiskCacheKey(new Object[]{"a"}, new String[]{"user:1"}), "value a", 0, null);
+        createCache().put(method, new DiskCacheKey(new Object[]{"b"}, new String[]{"user:2"}), "value b", 0, null);
+
+        JournaledDiskCache cache = createCache();
+        cache.clearCacheByTag("user:1");
+        assertFalse(cache.get(method, key("a"), 0).result);
+        assertTrue(cache.get(method, key("b"), 0).result);
+    }
+
+    @Test
+    public void warmsUpWithOriginalCreateTime() throws InterruptedException {
+        createCache().put(method, key("a"), "value a", 0, null);
+        long createTime = createCache().get(method, key("a"), 0).time;
+        Thread.sleep(5);
+
+        ConcurrentMemoryCache memoryCache = new ConcurrentMemoryCache(null);
+        createCache().warmUp(method, 0, 0, Long.MAX_VALUE, memoryCache);
+
+        CacheResult result = memoryCache.get(method.getMethodId(), new Object[]{"a"}, 0, 0);
+        assertEquals("value a", result.object);
+        assertEquals(createTime, (long) result.time);
+    }
+
+    @Test
+    public void deletesLegacyCache() throws IOException {
+        File legacyFile = new File(root, "cache/Api/1/1/00/entry");
+        legacyFile.getParentFile().mkdirs();
+        legacyFile.createNewFile();
+
+        createCache().put(method, key("a"), "value a", 0, null);
+
+        assertFalse(new File(root, "cache").exists());
+    }
+
+    @Test
+    public void keepsLegacyDiskData() throws IOException {
+        File legacyFile = new File(root, "cache/Api/1/1/00/entry");
+        legacyFile.getParentFile().mkdirs();
+        legacyFile.createNewFile();
+        CacheMethod dataMethod = new CacheMethod(1, "method", "Api", "http://localhost", LocalCache.CacheLevel.DISK_DATA, String.class);
+
+        createCache().put(dataMethod, key("a"), "value a", 0, null);
+
+        assertTrue(legacyFile.exists());
+    }
+
+    private JournaledDiskCache createCache() {
+        return new JournaledDiskCache(null) {
+            @Override
+            protected File getRootDir(LocalCache.CacheLevel cacheLevel) {
+                return root;
+            }
+        };
+    }
+
+    private File getJournalFile() {
+        return new File(new File(root, "judo_cache"), JournaledDiskCache.JOURNAL_FILE);
+    }
+
+    private static DiskCacheKey key(Object... args) {
+        return new DiskCacheKey(args);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
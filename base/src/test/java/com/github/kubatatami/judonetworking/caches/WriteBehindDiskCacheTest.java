@@ -0,0 +1,76 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import com.github.kubatatami.judonetworking.annotations.LocalCache;
+import com.github.kubatatami.judonetworking.internals.cache.CacheMethod;
+import com.github.kubatatami.judonetworking.internals.cache.DiskCacheKey;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBehindDiskCacheTest {
+
+    private File root;
+
+    private CacheMethod method;
+
+    private WriteBehindDiskCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("writebehind", "test");
+        root.delete();
+        root.mkdirs();
+        method = new CacheMethod(1, "method", "Api", "http://localhost", LocalCache.CacheLevel.DISK_CACHE, String.class);
+        cache = new WriteBehindDiskCache(new JournaledDiskCache(null) {
+            @Override
+            protected File getRootDir(LocalCache.CacheLevel cacheLevel) {
+                return root;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        cache.shutdown();
+        delete(root);
+    }
+
+    @Test
+    public void readsPendingAndWrittenEntries() {
+        cache.put(method, new DiskCacheKey(new Object[]{"a"}), "value a", 0, null);
+        assertEquals("value a", cache.get(method, new DiskCacheKey(new Object[]{"a"}), 0).object);
+
+        assertTrue(cache.flush(5000));
+        assertEquals(0, cache.getPendingCount());
+        assertEquals("value a", cache.getDiskCache().get(method, new DiskCacheKey(new Object[]{"a"}), 0).object);
+    }
+
+    @Test
+    public void writesSynchronouslyAfterShutdown() {
+        cache.shutdown();
+        assertTrue(cache.flush(5000));
+
+        cache.put(method, new DiskCacheKey(new Object[]{"a"}), "value a", 0, null);
+
+        assertEquals(0, cache.getPendingCount());
+        assertEquals("value a", cache.getDiskCache().get(method, new DiskCacheKey(new Object[]{"a"}), 0).object);
+        cache.shutdown();
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
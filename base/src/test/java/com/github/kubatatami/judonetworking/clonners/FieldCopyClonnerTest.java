@@ -0,0 +1,157 @@
+package com.github.kubatatami.judonetworking.clonners;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FieldCopyClonnerTest {
+
+    private final FieldCopyClonner clonner = new FieldCopyClonner();
+
+    @Test
+    public void copiesModelDeeply() {
+        Item item = new Item();
+        item.name = "item";
+        item.count = 3;
+        item.tags.add("a");
+        item.attributes.put("key", "value");
+        item.values = new int[]{1, 2, 3};
+        item.date = new Date(1000);
+        item.cached = "transient";
+
+        Item copy = clonner.clone(item);
+
+        assertNotSame(item, copy);
+        assertSame(item.name, copy.name);
+        assertEquals(3, copy.count);
+        assertNotSame(item.tags, copy.tags);
+        assertEquals(item.tags, copy.tags);
+        assertNotSame(item.attributes, copy.attributes);
+        assertEquals(item.attributes, copy.attributes);
+        assertNotSame(item.values, copy.values);
+        assertArrayEquals(item.values, copy.values);
+        assertNotSame(item.date, copy.date);
+        assertEquals(item.date, copy.date);
+        assertEquals("transient", copy.cached);
+    }
+
+    @Test
+    public void preservesSharedReferencesAndCycles() {
+        Item parent = new Item();
+        Item child = new Item();
+        child.parent = parent;
+        parent.children.add(child);
+        parent.children.add(child);
+
+        Item copy = clonner.clone(parent);
+
+        assertEquals(2, copy.children.size());
+        assertSame(copy.children.get(0), copy.children.get(1));
+        assertSame(copy, copy.children.get(0).parent);
+    }
+
+    @Test
+    public void clonesMapSubclassAsWhole() {
+        ItemMap map = new ItemMap();
+        map.label = "label";
+        map.put("key", "value");
+
+        ItemMap copy = clonner.clone(map);
+
+        assertNotSame(map, copy);
+        assertEquals("label", copy.label);
+        assertEquals("value", copy.get("key"));
+        copy.put("other", "value");
+        assertFalse(map.containsKey("other"));
+    }
+
+    @Test
+    public void clonesPlatformMaps() {
+        Holder holder = new Holder();
+        holder.concurrentMap.put("key", "value");
+        holder.table.put("key", "value");
+        holder.properties.setProperty("key", "value");
+        holder.linkedMap = new AccessOrderMap();
+        holder.linkedMap.put("key", "value");
+
+        Holder copy = clonner.clone(holder);
+
+        assertNotSame(holder.concurrentMap, copy.concurrentMap);
+        assertEquals("value", copy.concurrentMap.get("key"));
+        assertNotSame(holder.table, copy.table);
+        assertEquals("value", copy.table.get("key"));
+        assertNotSame(holder.properties, copy.properties);
+        assertEquals("value", copy.properties.getProperty("key"));
+        assertNotSame(holder.linkedMap, copy.linkedMap);
+        assertEquals("value", copy.linkedMap.get("key"));
+        copy.concurrentMap.put("other", "value");
+        assertFalse(holder.concurrentMap.containsKey("other"));
+    }
+
+    @Test
+    public void detectsPlatformTypes() {
+        assertTrue(FieldCopyClonner.isPlatformType(ConcurrentHashMap.class));
+        assertTrue(FieldCopyClonner.isPlatformType(ItemMap.class));
+        assertFalse(FieldCopyClonner.isPlatformType(Item.class));
+    }
+
+    static class Item implements Serializable {
+
+        String name;
+
+        int count;
+
+        List<String> tags = new ArrayList<>();
+
+        Map<String, String> attributes = new HashMap<>();
+
+        int[] values;
+
+        Date date;
+
+        Item parent;
+
+        List<Item> children = new ArrayList<>();
+
+        transient String cached;
+    }
+
+    static class ItemMap extends HashMap<String, String> {
+
+        String label;
+    }
+
+    static class AccessOrderMap extends LinkedHashMap<String, String> {
+
+        AccessOrderMap() {
+            super(16, 0.75f, true);
+        }
+    }
+
+    static class Holder implements Serializable {
+
+        ConcurrentHashMap<String, String> concurrentMap = new ConcurrentHashMap<>();
+
+        Hashtable<String, String> table = new Hashtable<>();
+
+        Properties properties = new Properties();
+
+        Map<String, String> linkedMap;
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+import com.github.kubatatami.judonetworking.caches.CacheCodec;
+import com.github.kubatatami.judonetworking.caches.SerializableCacheCodec;
+import com.github.kubatatami.judonetworking.internals.results.CacheResult;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CacheEntryFormatTest {
+
+    private final CacheCodec codec = new SerializableCacheCodec();
+
+    @Test
+    public void readsWrittenEntry() throws IOException {
+        DiskCacheKey key = new DiskCacheKey(new Object[]{"a", 1});
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put("ETag", Arrays.asList("\"1\""));
+        headers.put(null, Arrays.asList("HTTP/1.1 200 OK"));
+        headers.put("Empty", null);
+
+        byte[] bytes = write(key, new CacheResult(Arrays.asList("x", "y"), true, 1000L, headers));
+        CacheResult result = CacheEntryFormat.read(new ByteArrayInputStream(bytes), key, List.class, codec);
+
+        assertEquals(Arrays.asList("x", "y"), result.object);
+        assertEquals(1000L, (long) result.time);
+        assertEquals(headers, result.headers);
+    }
+
+    @Test
+    public void readsHeaderOnly() throws IOException {
+        DiskCacheKey key = new DiskCacheKey(new Object[]{"a"});
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        CacheEntryFormat.writeHeader(os, key, 1000L, null);
+        os.write(new byte[]{1, 2, 3});
+
+        ByteArrayInputStream is = new ByteArrayInputStream(os.toByteArray());
+        CacheResult result = CacheEntryFormat.readHeader(is, key);
+
+        assertEquals(1000L, (long) result.time);
+        assertNull(result.headers);
+        assertEquals(3, is.available());
+        assertEquals(1, is.read());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherKey() throws IOException {
+        byte[] bytes = write(new DiskCacheKey(new Object[]{"a"}), new CacheResult("value", true, 0L, null));
+
+        CacheEntryFormat.read(new ByteArrayInputStream(bytes), new DiskCacheKey(new Object[]{"b"}), String.class, codec);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownFormat() throws IOException {
+        CacheEntryFormat.readHeader(new ByteArrayInputStream(new byte[16]), new DiskCacheKey(new Object[]{"a"}));
+    }
+
+    @Test
+    public void readsArgsAndTags() throws IOException {
+        DiskCacheKey key = new DiskCacheKey(new Object[]{"a", 1}, new String[]{"user:1", "list"});
+        byte[] bytes = write(key, new CacheResult("value", true, 1000L, null));
+
+        CacheResult result = CacheEntryFormat.readWithArgs(new ByteArrayInputStream(bytes), String.class, codec);
+
+        assertArrayEquals(new Object[]{"a", 1}, result.args);
+        assertArrayEquals(new String[]{"user:1", "list"}, result.tags);
+        assertEquals("value", result.object);
+        assertEquals(1000L, (long) result.time);
+        assertArrayEquals(new String[]{"user:1", "list"}, CacheEntryFormat.readTags(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void skipsNotSerializableArgs() throws IOException {
+        DiskCacheKey key = new DiskCacheKey(new Object[]{new Object()}, new String[]{"user:1"});
+        byte[] bytes = write(key, new CacheResult("value", true, 0L, null));
+
+        assertNull(CacheEntryFormat.readWithArgs(new ByteArrayInputStream(bytes), String.class, codec));
+        assertArrayEquals(new String[]{"user:1"}, CacheEntryFormat.readTags(new ByteArrayInputStream(bytes)));
+        assertEquals("value", CacheEntryFormat.read(new ByteArrayInputStream(bytes), key, String.class, codec).object);
+    }
+
+    private byte[] write(DiskCacheKey key, CacheResult result) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        CacheEntryFormat.write(os, key, result, result.object.getClass(), codec);
+        return os.toByteArray();
+    }
+}
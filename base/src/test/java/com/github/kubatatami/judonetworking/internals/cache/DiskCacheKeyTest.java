@@ -0,0 +1,93 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DiskCacheKeyTest {
+
+    @Test
+    public void canonicalizesSimpleValues() {
+        assertEquals("[\"a\\\"b\",Integer(1),Long(1),null,Boolean(true),Date(1000)]",
+                DiskCacheKey.canonicalize(new Object[]{"a\"b", 1, 1L, null, true, new Date(1000)}));
+    }
+
+    @Test
+    public void ignoresSetAndMapOrder() {
+        Set<String> set = new LinkedHashSet<>(Arrays.asList("a", "b", "c"));
+        Set<String> reversedSet = new LinkedHashSet<>(Arrays.asList("c", "b", "a"));
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        Map<String, Integer> reversedMap = new LinkedHashMap<>();
+        reversedMap.put("b", 2);
+        reversedMap.put("a", 1);
+
+        assertEquals(new DiskCacheKey(new Object[]{set, map}), new DiskCacheKey(new Object[]{reversedSet, reversedMap}));
+        assertEquals(new DiskCacheKey(new Object[]{set, map}).getHash(), new DiskCacheKey(new Object[]{reversedSet, reversedMap}).getHash());
+    }
+
+    @Test
+    public void canonicalizesModelFields() {
+        Filter filter = new Filter("name", 10);
+
+        assertEquals(new DiskCacheKey(new Object[]{filter}), new DiskCacheKey(new Object[]{new Filter("name", 10)}));
+        assertNotEquals(new DiskCacheKey(new Object[]{filter}), new DiskCacheKey(new Object[]{new Filter("name", 11)}));
+        assertEquals("[" + Filter.class.getName() + "{limit=Integer(10),name=\"name\",tags={}}]",
+                DiskCacheKey.canonicalize(new Object[]{filter}));
+    }
+
+    @Test
+    public void writesLibraryTypesByToString() {
+        assertEquals("[java.net.URI(http://localhost)]", DiskCacheKey.canonicalize(new Object[]{URI.create("http://localhost")}));
+    }
+
+    @Test
+    public void handlesCycles() {
+        Node node = new Node();
+        node.next = node;
+
+        assertTrue(DiskCacheKey.canonicalize(new Object[]{node}).contains("@cycle"));
+    }
+
+    @Test
+    public void hashesCanonicalForm() {
+        DiskCacheKey key = new DiskCacheKey(new Object[]{"a"});
+
+        assertEquals(40, key.getHash().length());
+        assertEquals(key.getHash().substring(0, 2), key.getShard());
+    }
+
+    static class Filter {
+
+        String name;
+
+        Integer limit;
+
+        Set<String> tags = new HashSet<>();
+
+        transient Map<String, String> cache = new HashMap<>();
+
+        Filter(String name, Integer limit) {
+            this.name = name;
+            this.limit = limit;
+        }
+    }
+
+    static class Node {
+
+        Node next;
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.kubatatami.judonetworking.internals.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagIndexTest {
+
+    private TagIndex<String> index;
+
+    @Before
+    public void setUp() {
+        index = new TagIndex<>();
+        index.put("a", new String[]{"user:1", "list"});
+        index.put("b", new String[]{"user:2"});
+        index.put("c", new String[]{"user:10", "list"});
+    }
+
+    @Test
+    public void removesTag() {
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), index.removeTag("list"));
+        assertEquals(Collections.emptySet(), index.removeTag("user:1"));
+        assertEquals(Collections.singleton("b"), index.removeTag("user:2"));
+        assertTrue(index.isEmpty());
+    }
+
+    @Test
+    public void removesTagPrefix() {
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), index.removeTagPrefix("user:1"));
+        assertEquals(Collections.singleton("b"), index.removeTagPrefix("user:"));
+        assertEquals(Collections.emptySet(), index.removeTagPrefix("list"));
+    }
+
+    @Test
+    public void replacesTags() {
+        index.put("a", new String[]{"user:3"});
+        index.put("c", null);
+
+        assertEquals(Collections.emptySet(), index.removeTag("list"));
+        assertEquals(Collections.singleton("a"), index.removeTag("user:3"));
+        assertEquals(Collections.emptySet(), index.removeTag("user:10"));
+    }
+
+    @Test
+    public void removesKey() {
+        index.remove("a");
+        index.remove("b");
+
+        assertFalse(index.isEmpty());
+        assertEquals(Collections.singleton("c"), index.removeTag("list"));
+        assertTrue(index.isEmpty());
+    }
+
+    @Test
+    public void clears() {
+        index.clear();
+
+        assertTrue(index.isEmpty());
+        assertEquals(Collections.emptySet(), index.removeTagPrefix(""));
+    }
+}
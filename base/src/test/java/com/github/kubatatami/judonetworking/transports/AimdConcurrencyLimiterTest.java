@@ -0,0 +1,99 @@
+package com.github.kubatatami.judonetworking.transports;
+
+import com.github.kubatatami.judonetworking.exceptions.ConnectionException;
+import com.github.kubatatami.judonetworking.exceptions.JudoException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AimdConcurrencyLimiterTest {
+
+    private static final String HOST = "localhost";
+
+    private AimdConcurrencyLimiter limiter;
+
+    private Deque<ConcurrencyLimiter.Permit> permits;
+
+    @Before
+    public void setUp() {
+        limiter = new AimdConcurrencyLimiter(4, 1, 64);
+        permits = new ArrayDeque<>();
+    }
+
+    @Test
+    public void growsWithFastResponses() throws JudoException {
+        respond(200, 10);
+
+        assertTrue(limiter.getLimit(HOST) > 4);
+    }
+
+    @Test
+    public void keepsLimitWithMixOfFastAndSlowMethods() throws JudoException {
+        for (int i = 0; i < 1000; i++) {
+            respond(1, i % 2 == 0 ? 10 : 500);
+        }
+
+        assertTrue(limiter.getLimit(HOST) >= 4);
+    }
+
+    @Test
+    public void decreasesOncePerCongestionEvent() throws JudoException {
+        respond(200, 10);
+        fill();
+        int limit = limiter.getLimit(HOST);
+
+        while (!permits.isEmpty()) {
+            permits.poll().onSuccess(100);
+        }
+
+        assertTrue(limiter.getLimit(HOST) < limit);
+        assertTrue(limiter.getLimit(HOST) >= (int) (limit * 0.9) - 1);
+    }
+
+    @Test
+    public void decreasesWithSustainedLatency() throws JudoException {
+        respond(200, 10);
+        int limit = limiter.getLimit(HOST);
+
+        respond(50, 100);
+
+        assertTrue(limiter.getLimit(HOST) < limit);
+    }
+
+    @Test
+    public void decreasesOnceForDroppedWindow() throws JudoException {
+        fill();
+        while (!permits.isEmpty()) {
+            permits.poll().onDropped();
+        }
+
+        assertEquals(3, limiter.getLimit(HOST));
+        assertEquals(0, limiter.getInFlight(HOST));
+    }
+
+    @Test(expected = ConnectionException.class)
+    public void failsWhenLimitReached() throws JudoException {
+        fill();
+
+        limiter.acquire(HOST, 0);
+    }
+
+    private void respond(int count, long roundTripTime) throws JudoException {
+        for (int i = 0; i < count; i++) {
+            fill();
+            permits.poll().onSuccess(roundTripTime);
+        }
+    }
+
+    private void fill() throws JudoException {
+        while (limiter.getInFlight(HOST) < limiter.getLimit(HOST)) {
+            permits.add(limiter.acquire(HOST, 0));
+        }
+    }
+}
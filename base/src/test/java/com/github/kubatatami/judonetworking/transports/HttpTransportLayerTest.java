@@ -0,0 +1,36 @@
+package com.github.kubatatami.judonetworking.transports;
+
+import com.github.kubatatami.judonetworking.exceptions.DeadlineExceededException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HttpTransportLayerTest {
+
+    @Test
+    public void keepsTimeoutWithoutDeadline() throws DeadlineExceededException {
+        assertEquals(1000, HttpTransportLayer.capByDeadline(1000, 0));
+        assertEquals(0, HttpTransportLayer.capByDeadline(0, 0));
+    }
+
+    @Test
+    public void capsTimeoutByDeadline() throws DeadlineExceededException {
+        int timeout = HttpTransportLayer.capByDeadline(60000, System.currentTimeMillis() + 1000);
+
+        assertTrue(timeout > 0 && timeout <= 1000);
+    }
+
+    @Test
+    public void capsInfiniteTimeoutByDeadline() throws DeadlineExceededException {
+        int timeout = HttpTransportLayer.capByDeadline(0, System.currentTimeMillis() + 1000);
+
+        assertTrue(timeout > 0 && timeout <= 1000);
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void failsAfterDeadline() throws DeadlineExceededException {
+        HttpTransportLayer.capByDeadline(1000, System.currentTimeMillis() - 1);
+    }
+}
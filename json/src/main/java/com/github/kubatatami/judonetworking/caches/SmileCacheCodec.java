@@ -0,0 +1,54 @@
+package com.github.kubatatami.judonetworking.caches;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Cache codec storing objects in binary JSON (Smile) format. Cached classes don't have to be
+ * {@link java.io.Serializable} and added or removed fields don't invalidate old entries.
+ */
+public class SmileCacheCodec implements CacheCodec {
+
+    protected ObjectMapper mapper;
+
+    public SmileCacheCodec() {
+        this(new ObjectMapper(new SmileFactory()));
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * @param mapper Mapper with binary factory, e.g. Smile or CBOR
+     */
+    public SmileCacheCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        mapper.getFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+
+    @Override
+    public void write(OutputStream outputStream, Object object, Type type) throws IOException {
+        if (type != null) {
+            mapper.writerFor(getType(type)).writeValue(outputStream, object);
+        } else {
+            mapper.writeValue(outputStream, object);
+        }
+    }
+
+    @Override
+    public Object read(InputStream inputStream, Type type) throws IOException {
+        return mapper.readValue(inputStream, getType(type != null ? type : Object.class));
+    }
+
+    protected JavaType getType(Type type) {
+        return mapper.getTypeFactory().constructType(type);
+    }
+}
@@ -4,13 +4,10 @@ package com.github.kubatatami.judonetworking.controllers.json;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.kubatatami.judonetworking.Request;
 import com.github.kubatatami.judonetworking.controllers.json.base.JsonBaseController;
+import com.github.kubatatami.judonetworking.controllers.json.base.JsonStreamEntity;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
-import com.github.kubatatami.judonetworking.internals.streams.RequestInputStreamEntity;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,17 +41,13 @@ public class JsonController extends JsonBaseController {
             i++;
         }
 
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        OutputStreamWriter writer = new OutputStreamWriter(stream);
         try {
-            mapper.writeValue(writer, req);
-            writer.close();
+            requestInfo.entity = JsonStreamEntity.create(mapper, req, chunkedRequests);
         } catch (IOException ex) {
             throw new JudoException("Can't create request", ex);
         }
 
         requestInfo.url = url;
-        requestInfo.entity = new RequestInputStreamEntity(new ByteArrayInputStream(stream.toByteArray()), stream.size());
 
         return requestInfo;
     }
@@ -5,17 +5,14 @@ import com.github.kubatatami.judonetworking.Request;
 import com.github.kubatatami.judonetworking.controllers.ProtocolController;
 import com.github.kubatatami.judonetworking.controllers.json.base.JsonProtocolController;
 import com.github.kubatatami.judonetworking.controllers.json.base.JsonBaseController;
+import com.github.kubatatami.judonetworking.controllers.json.base.JsonStreamEntity;
 import com.github.kubatatami.judonetworking.controllers.raw.RawRestController;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
 import com.github.kubatatami.judonetworking.internals.results.RequestResult;
-import com.github.kubatatami.judonetworking.internals.streams.RequestInputStreamEntity;
 import com.github.kubatatami.judonetworking.utils.ReflectionCache;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -36,6 +33,8 @@ public class JsonRestController extends RawRestController {
 
     protected ObjectMapper mapper;
 
+    protected boolean chunkedRequests;
+
     public JsonRestController() {
         mapper = JsonProtocolController.getMapperInstance();
     }
@@ -44,6 +43,17 @@ public class JsonRestController extends RawRestController {
         return mapper;
     }
 
+    public boolean isChunkedRequests() {
+        return chunkedRequests;
+    }
+
+    /**
+     * @see JsonProtocolController#setChunkedRequests(boolean)
+     */
+    public void setChunkedRequests(boolean chunkedRequests) {
+        this.chunkedRequests = chunkedRequests;
+    }
+
     @Override
     public RequestResult parseResponse(Request request, InputStream stream, Map<String, List<String>> headers) {
         return JsonBaseController.parseResponse(mapper, request, stream);
@@ -75,16 +85,12 @@ public class JsonRestController extends RawRestController {
                 finalParams = params;
             }
 
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            OutputStreamWriter writer = new OutputStreamWriter(stream);
             try {
-                mapper.writeValue(writer, finalParams);
-                writer.close();
+                requestInfo.entity = JsonStreamEntity.create(mapper, finalParams, chunkedRequests);
             } catch (IOException ex) {
                 throw new JudoException("Can't create request", ex);
             }
 
-            requestInfo.entity = new RequestInputStreamEntity(new ByteArrayInputStream(stream.toByteArray()), stream.size());
             requestInfo.mimeType = "application/json";
 
             Rest ann = ReflectionCache.getAnnotationInherited(request.getMethod(), Rest.class);
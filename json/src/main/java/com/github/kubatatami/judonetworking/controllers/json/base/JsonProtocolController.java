@@ -26,6 +26,7 @@ import java.io.Serializable;
 public abstract class JsonProtocolController extends ProtocolController {
     protected ObjectMapper mapper;
     protected JsonFactory factory;
+    protected boolean chunkedRequests;
 
     protected JsonProtocolController() {
         mapper = getMapperInstance();
@@ -69,4 +70,17 @@ public abstract class JsonProtocolController extends ProtocolController {
         return mapper;
     }
 
+    public boolean isChunkedRequests() {
+        return chunkedRequests;
+    }
+
+    /**
+     * Sends request bodies with chunked transfer encoding, serialized straight into connection without
+     * buffering. Request parameters can't be modified until request is sent and serialization errors
+     * are reported as connection errors then, because serialization happens during sending.
+     */
+    public void setChunkedRequests(boolean chunkedRequests) {
+        this.chunkedRequests = chunkedRequests;
+    }
+
 }
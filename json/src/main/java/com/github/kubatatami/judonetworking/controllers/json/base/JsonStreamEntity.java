@@ -0,0 +1,68 @@
+package com.github.kubatatami.judonetworking.controllers.json.base;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.kubatatami.judonetworking.internals.streams.StreamEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JSON request body. Entity with known length serializes value once while it's created, using Jackson
+ * recycled buffers, so length and sent body always match even if value changes later. Chunked entity
+ * serializes value by Jackson straight into transport stream while it's sent and reports unknown length,
+ * value can't be modified until request is sent then. Entity can be written more than once, e.g. on retry.
+ */
+public class JsonStreamEntity implements StreamEntity {
+
+    protected final ObjectMapper mapper;
+
+    protected final Object value;
+
+    protected final byte[] body;
+
+    public JsonStreamEntity(ObjectMapper mapper, Object value) throws IOException {
+        this(mapper, value, false);
+    }
+
+    public JsonStreamEntity(ObjectMapper mapper, Object value, boolean chunked) throws IOException {
+        this.mapper = mapper;
+        this.value = value;
+        this.body = chunked ? null : mapper.writeValueAsBytes(value);
+    }
+
+    public static JsonStreamEntity create(ObjectMapper mapper, Object value, boolean chunked) throws IOException {
+        return new JsonStreamEntity(mapper, value, chunked);
+    }
+
+    @Override
+    public long getContentLength() throws IOException {
+        return body != null ? body.length : -1;
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        if (body != null) {
+            outstream.write(body);
+            return;
+        }
+        JsonGenerator generator = mapper.getFactory().createGenerator(outstream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            mapper.writeValue(generator, value);
+        } finally {
+            generator.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+    }
+
+    @Override
+    public String getLog() throws IOException {
+        return body != null ? new String(body, "UTF-8") : mapper.writeValueAsString(value);
+    }
+}
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.github.kubatatami.judonetworking.Request;
 import com.github.kubatatami.judonetworking.controllers.ProtocolController;
+import com.github.kubatatami.judonetworking.controllers.json.base.JsonStreamEntity;
 import com.github.kubatatami.judonetworking.exceptions.ConnectionException;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
 import com.github.kubatatami.judonetworking.exceptions.ParseException;
@@ -17,10 +18,7 @@ import com.github.kubatatami.judonetworking.exceptions.ProtocolException;
 import com.github.kubatatami.judonetworking.internals.results.ErrorResult;
 import com.github.kubatatami.judonetworking.internals.results.RequestResult;
 import com.github.kubatatami.judonetworking.internals.results.RequestSuccessResult;
-import com.github.kubatatami.judonetworking.internals.streams.RequestInputStreamEntity;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Type;
@@ -199,9 +197,7 @@ public class JsonRpc2Controller extends JsonRpcController {
                 requestsJson[i] = createRequestObject(request);
                 i++;
             }
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            mapper.writeValue(stream, requestsJson);
-            requestInfo.entity = new RequestInputStreamEntity(new ByteArrayInputStream(stream.toByteArray()), stream.size());
+            requestInfo.entity = JsonStreamEntity.create(mapper, requestsJson, chunkedRequests);
             requestInfo.mimeType = "application/json";
             return requestInfo;
         } catch (IOException ex) {
@@ -2,13 +2,10 @@ package com.github.kubatatami.judonetworking.controllers.json.rpc;
 
 import com.github.kubatatami.judonetworking.Request;
 import com.github.kubatatami.judonetworking.controllers.json.base.JsonProtocolController;
+import com.github.kubatatami.judonetworking.controllers.json.base.JsonStreamEntity;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
-import com.github.kubatatami.judonetworking.internals.streams.RequestInputStreamEntity;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -27,15 +24,11 @@ public abstract class JsonRpcController extends JsonProtocolController {
     public RequestInfo createRequest(String url, Request request) throws JudoException {
         RequestInfo requestInfo = new RequestInfo();
         requestInfo.url = url;
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        OutputStreamWriter writer = new OutputStreamWriter(stream);
         try {
-            mapper.writeValue(writer, createRequestObject(request));
-            writer.close();
+            requestInfo.entity = JsonStreamEntity.create(mapper, createRequestObject(request), chunkedRequests);
         } catch (IOException ex) {
             throw new JudoException("Can't create request", ex);
         }
-        requestInfo.entity = new RequestInputStreamEntity(new ByteArrayInputStream(stream.toByteArray()), stream.size());
         requestInfo.mimeType = "application/json";
         return requestInfo;
     }
@@ -1,8 +1,10 @@
 package com.github.kubatatami.judonetworking.observers;
 
+import com.github.kubatatami.judonetworking.CacheInfo;
 import com.github.kubatatami.judonetworking.callbacks.DefaultCallback;
+import com.github.kubatatami.judonetworking.callbacks.RefreshCallback;
 
-public class ObservableWrapperCallback<T> extends DefaultCallback<T> {
+public class ObservableWrapperCallback<T> extends DefaultCallback<T> implements RefreshCallback<T> {
 
     protected final ObservableWrapper<T> wrapper;
     protected ObservableTransaction transaction = null;
@@ -25,4 +27,9 @@ public class ObservableWrapperCallback<T> extends DefaultCallback<T> {
         }
     }
 
+    @Override
+    public void onRefresh(T result, CacheInfo cacheInfo) {
+        onSuccess(result);
+    }
+
 }
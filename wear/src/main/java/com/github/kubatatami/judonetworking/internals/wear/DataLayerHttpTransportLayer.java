@@ -4,10 +4,9 @@ import android.content.Context;
 
 import com.github.kubatatami.judonetworking.Endpoint;
 import com.github.kubatatami.judonetworking.controllers.ProtocolController;
-import com.github.kubatatami.judonetworking.exceptions.CancelException;
 import com.github.kubatatami.judonetworking.exceptions.ConnectionException;
 import com.github.kubatatami.judonetworking.exceptions.JudoException;
-import com.github.kubatatami.judonetworking.internals.executors.JudoExecutor;
+import com.github.kubatatami.judonetworking.internals.CancelRegistry;
 import com.github.kubatatami.judonetworking.internals.stats.TimeStat;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
 import com.github.kubatatami.judonetworking.transports.HttpTransportLayer;
@@ -42,11 +41,9 @@ public class DataLayerHttpTransportLayer extends HttpTransportLayer {
         if (requestInfo.mimeType != null) {
             request.addHeader("Content-Type", requestInfo.mimeType);
         }
-        request.setConnectTimeout(connectTimeout);
+        request.setConnectTimeout(getConnectTimeout(requestInfo));
 
-        if (timeout == 0) {
-            timeout = methodTimeout;
-        }
+        timeout = getReadTimeout(requestInfo, timeout);
         timeStat.setTimeout(timeout);
         request.setReadTimeout(timeout);
 
@@ -86,21 +83,7 @@ public class DataLayerHttpTransportLayer extends HttpTransportLayer {
             }
             request.setMethodName(methodName);
 
-            if (Thread.currentThread() instanceof JudoExecutor.ConnectionThread) {
-                JudoExecutor.ConnectionThread connectionThread = (JudoExecutor.ConnectionThread) Thread.currentThread();
-                connectionThread.setCanceller(new JudoExecutor.ConnectionThread.Canceller() {
-                    @Override
-                    public void cancel() {
-                        new Thread(new Runnable() {
-                            @Override
-                            public void run() {
-                                //TODO
-                            }
-                        }).start();
-                    }
-                });
-            }
-            WearResponse response = makeCallAndGetResponse(request);
+            WearResponse response = makeCallAndGetResponse(request, requestInfo.cancelRegistration);
 
             timeStat.tickConnectionTime();
             timeStat.tickSendTime();
@@ -115,23 +98,9 @@ public class DataLayerHttpTransportLayer extends HttpTransportLayer {
     }
 
 
-    protected WearResponse makeCallAndGetResponse(WearRequest request) throws IOException {
-        try {
-            int timeoutSum = request.getConnectTimeout() + request.getReadTimeout();
-            return messageUtils.sendMessageAndReceive(request, timeoutSum, WearResponse.class);
-        } catch (IOException ex) {
-            if (Thread.currentThread() instanceof JudoExecutor.ConnectionThread) {
-                JudoExecutor.ConnectionThread thread = (JudoExecutor.ConnectionThread) Thread.currentThread();
-                if (thread.isCanceled()) {
-                    thread.resetCanceled();
-                    throw new CancelException(thread.getName());
-                } else {
-                    throw ex;
-                }
-            } else {
-                throw ex;
-            }
-        }
+    protected WearResponse makeCallAndGetResponse(WearRequest request, CancelRegistry.Registration cancelRegistration) throws IOException {
+        int timeoutSum = request.getConnectTimeout() + request.getReadTimeout();
+        return messageUtils.sendMessageAndReceive(request, timeoutSum, WearResponse.class, cancelRegistration);
     }
 
     @Override
@@ -140,9 +109,6 @@ public class DataLayerHttpTransportLayer extends HttpTransportLayer {
         WearRequest request = new WearRequest();
         try {
             request.setUrl(requestInfo.url);
-            if (Thread.currentThread().isInterrupted()) {
-                return null;
-            }
             initSetup(request, requestInfo, timeout, timeStat);
 
             logRequestHeaders(requestName, debugFlags, request);
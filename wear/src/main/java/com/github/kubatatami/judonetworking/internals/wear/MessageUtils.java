@@ -4,7 +4,9 @@ import android.content.Context;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.kubatatami.judonetworking.exceptions.CancelException;
 import com.github.kubatatami.judonetworking.exceptions.ConnectionException;
+import com.github.kubatatami.judonetworking.internals.CancelRegistry;
 import com.github.kubatatami.judonetworking.logs.JudoLogger;
 import com.github.kubatatami.judonetworking.wear.R;
 import com.google.android.gms.common.ConnectionResult;
@@ -62,6 +64,11 @@ public class MessageUtils {
     }
 
     public <T> T sendMessageAndReceive(Object msg, int operationTimeout, Class<T> clazz) throws IOException {
+        return sendMessageAndReceive(msg, operationTimeout, clazz, null);
+    }
+
+    public <T> T sendMessageAndReceive(Object msg, int operationTimeout, Class<T> clazz,
+                                       CancelRegistry.Registration cancelRegistration) throws IOException {
         makeSureIsConnected();
         CapabilityInfo capabilityInfo = Wearable.CapabilityApi.getCapability(
                 googleClient, context.getString(R.string.jj_request_proxy),
@@ -71,12 +78,30 @@ public class MessageUtils {
         }
         Set<Node> nodes = capabilityInfo.getNodes();
         String id = generateUniqId();
-        Object waitObject = new Object();
+        final Object waitObject = new Object();
         waitObjects.put(id, waitObject);
+        if (cancelRegistration != null && !cancelRegistration.attach(new CancelRegistry.Cancellable() {
+            @Override
+            public void cancel() {
+                synchronized (waitObject) {
+                    waitObject.notifyAll();
+                }
+            }
+        })) {
+            waitObjects.remove(id);
+            throw new CancelException(id);
+        }
         sendMessage(id, pickBestNodeId(nodes), msg);
         try {
+            long timeout = readTimeout + operationTimeout;
+            long end = System.currentTimeMillis() + timeout;
             synchronized (waitObject) {
-                waitObject.wait(readTimeout + operationTimeout);
+                // response or cancel may notify before this thread starts waiting
+                while (timeout > 0 && !resultObjects.containsKey(id)
+                        && (cancelRegistration == null || !cancelRegistration.isCancelled())) {
+                    waitObject.wait(timeout);
+                    timeout = end - System.currentTimeMillis();
+                }
             }
         } catch (InterruptedException e) {
             throw new ConnectionException("GoogleApiClient timeout");
@@ -84,6 +109,9 @@ public class MessageUtils {
             waitObjects.remove(id);
         }
         byte[] message = resultObjects.remove(id);
+        if (cancelRegistration != null && cancelRegistration.isCancelled()) {
+            throw new CancelException(id);
+        }
         if (message != null) {
             return readObject(message, clazz);
         } else {